@@ -7,11 +7,14 @@ import dataset.creation.fetcher.jira.JiraTicket;
 import dataset.creation.fetcher.jira.JiraVersion;
 import dataset.creation.features.BuggyInfo;
 import dataset.creation.features.BuggyMethodExtractor;
+import dataset.creation.features.FeatureCache;
 import dataset.creation.features.FeatureExtractor;
 import dataset.creation.features.MethodFeatures;
 import dataset.creation.features.csv.CsvGenerator;
 import dataset.creation.utils.CsvDeduplicator;
 import dataset.creation.utils.FinalCsvReducer;
+import dataset.creation.utils.GitTreeSourceProvider;
+import dataset.creation.utils.RepositoryService;
 import dataset.creation.utils.PipelineUtils;
 import dataset.creation.exceptions.JsonDumpException;
 import dataset.creation.exceptions.PipelineException;
@@ -34,6 +37,10 @@ import java.util.stream.Collectors;
 public class Main {
     public static final String DATASET = "dataset_";
 
+    /** Numero massimo di file tenuti nella cache feature (proprietà {@code dataset.featureCache.maxEntries}). */
+    private static final int FEATURE_CACHE_MAX_ENTRIES =
+            Integer.getInteger("dataset.featureCache.maxEntries", 50_000);
+
     private static final Logger LOG = LoggerFactory.getLogger(Main.class);
 
     public static void main(String[] args) {
@@ -63,12 +70,13 @@ public class Main {
             Path repoDir = baseDir.resolve(cfg.repo().toLowerCase() + "_repo");
             if (!Files.exists(repoDir)) {
                 LOG.info("▶ Cloning repository {}...", cfg.repo());
-                GitInjection git = new GitInjection(
+                try (GitInjection git = new GitInjection(
                         "https://github.com/" + cfg.owner() + "/" + cfg.repo() + ".git",
                         repoDir.toFile(),
                         new ArrayList<>()
-                );
-                git.injectCommits();
+                )) {
+                    git.injectCommits();
+                }
             } else {
                 LOG.info("▶ Repository {} già presente, skip cloning", repoDir);
             }
@@ -103,33 +111,49 @@ public class Main {
             dumpJson(cacheDir, cfg.repo().toLowerCase() + "_releases_intersection.json", releases);
             LOG.info("Release da elaborare per {}: {}", cfg.repo(), releases);
 
-            // 7) Calcolo buggy‐info (cache)
-            BuggyInfo bugInfo = BuggyMethodExtractor.computeOrLoad(
-                    repoDir.toFile(),
-                    tickets,
-                    cfg.repo().toLowerCase(),
-                    cacheDir
-            );
-
-            // 8) Feature extraction e CSV
             FeatureExtractor fx = new FeatureExtractor();
+            FeatureCache featureCache = FeatureCache.load(
+                    cacheDir.resolve(cfg.repo().toLowerCase() + "_feature_cache.json"),
+                    FEATURE_CACHE_MAX_ENTRIES);
             String csvBase = DATASET + cfg.repo().toLowerCase() + ".csv";
-            boolean first = true;
-            for (String tag : releases) {
-                LOG.info("   • elaboro {}@{}", cfg.repo(), tag);
-                Map<File, Map<String, MethodFeatures>> feats;
-                if ("HEAD".equals(tag)) {
-                    feats = PipelineUtils.walkAndExtract(repoDir.toFile(), fx);
-                } else {
-                    Path tmp = PipelineUtils.downloadAndUnzip(cfg.owner(), cfg.repo(), tag);
-                    Path proj = PipelineUtils.findSingleSubdir(tmp);
-                    feats = PipelineUtils.walkAndExtract(proj.toFile(), fx);
-                    PipelineUtils.deleteDirectoryRecursively(tmp);
+
+            // 7-8) buggy-info e sorgenti delle release leggono la stessa clone aperta
+            // (pack, indici e reader): vedi RepositoryService
+            try (RepositoryService gitRepo = RepositoryService.open(repoDir.toFile())) {
+                // 7) Calcolo buggy‐info (cache)
+                BuggyInfo bugInfo = BuggyMethodExtractor.computeOrLoad(
+                        gitRepo,
+                        tickets,
+                        cfg.repo().toLowerCase(),
+                        cacheDir,
+                        PipelineUtils.EXTRACTION_WORKERS
+                );
+
+                // 8) Feature extraction e CSV
+                boolean first = true;
+                GitTreeSourceProvider gitSources = new GitTreeSourceProvider(gitRepo);
+                for (String tag : releases) {
+                    LOG.info("   • elaboro {}@{}", cfg.repo(), tag);
+                    Map<File, Map<String, MethodFeatures>> feats;
+                    if ("HEAD".equals(tag)) {
+                        feats = PipelineUtils.walkAndExtractBatch(repoDir.toFile(), fx,
+                                PipelineUtils.EXTRACTION_WORKERS, featureCache);
+                    } else if (gitSources.hasRevision(tag)) {
+                        feats = PipelineUtils.extractFromGitTree(gitSources, tag, fx,
+                                PipelineUtils.EXTRACTION_WORKERS, featureCache);
+                    } else {
+                        // tag assente nella clone: ripiego sullo zipball GitHub, letto in memoria
+                        feats = PipelineUtils.extractSources(
+                                PipelineUtils.downloadJavaSources(cfg.owner(), cfg.repo(), tag),
+                                fx, PipelineUtils.EXTRACTION_WORKERS, featureCache);
+                    }
+                    new CsvGenerator(tag, !first)
+                            .generateCsv(feats, bugInfo, csvBase);
+                    first = false;
                 }
-                new CsvGenerator(tag, !first)
-                        .generateCsv(feats, bugInfo, csvBase);
-                first = false;
             }
+            featureCache.save();
+            LOG.info("   • {}", featureCache);
 
             // 9) Dedup + filtro + riduzione cross‐release
             Path raw      = Paths.get(csvBase);
@@ -0,0 +1,94 @@
+package dataset.creation.features;
+
+import com.github.javaparser.JavaToken;
+import com.github.javaparser.TokenRange;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.stmt.BlockStmt;
+
+import java.util.Optional;
+
+/**
+ * Impronta a 128 bit del corpo di un metodo, calcolata dal flusso di token
+ * del parser saltando spazi, fine riga e commenti: due corpi che differiscono
+ * solo per formattazione o commenti hanno la stessa impronta.
+ *
+ * Le due metà sono hash a 64 bit indipendenti (FNV-1a e moltiplica-ruota)
+ * sul testo di ogni token, separato dal successivo; nessuna stringa
+ * intermedia viene costruita.
+ */
+final class BodyFingerprint {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME  = 0x100000001b3L;
+    private static final long MIX        = 0x9e3779b97f4a7c15L;
+    private static final char TOKEN_SEPARATOR = '\u0000';
+
+    /** Impronta di un metodo senza corpo (astratto / di interfaccia). */
+    static final BodyFingerprint NO_BODY = new BodyFingerprint(0L, 0L);
+
+    private final long hi;
+    private final long lo;
+
+    private BodyFingerprint(long hi, long lo) {
+        this.hi = hi;
+        this.lo = lo;
+    }
+
+    static BodyFingerprint of(MethodDeclaration md) {
+        Optional<BlockStmt> body = md.getBody();
+        if (body.isEmpty()) {
+            return NO_BODY;
+        }
+        Optional<TokenRange> tokens = body.get().getTokenRange();
+        return tokens.isPresent() ? ofTokens(tokens.get()) : ofText(body.get().toString());
+    }
+
+    private static BodyFingerprint ofTokens(TokenRange tokens) {
+        long h1 = FNV_OFFSET;
+        long h2 = MIX;
+        for (JavaToken t : tokens) {
+            JavaToken.Category c = t.getCategory();
+            if (c.isWhitespaceOrComment()) continue;
+            String text = t.getText();
+            for (int i = 0; i < text.length(); i++) {
+                char ch = text.charAt(i);
+                h1 = (h1 ^ ch) * FNV_PRIME;
+                h2 = Long.rotateLeft(h2 ^ ch, 27) * MIX;
+            }
+            h1 = (h1 ^ TOKEN_SEPARATOR) * FNV_PRIME;
+            h2 = Long.rotateLeft(h2 ^ TOKEN_SEPARATOR, 27) * MIX;
+        }
+        return new BodyFingerprint(h1, h2);
+    }
+
+    /** Ripiego per nodi senza token (AST non prodotto dal parser): ignora gli spazi. */
+    private static BodyFingerprint ofText(String text) {
+        long h1 = FNV_OFFSET;
+        long h2 = MIX;
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (Character.isWhitespace(ch)) continue;
+            h1 = (h1 ^ ch) * FNV_PRIME;
+            h2 = Long.rotateLeft(h2 ^ ch, 27) * MIX;
+        }
+        return new BodyFingerprint(h1, h2);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BodyFingerprint)) return false;
+        BodyFingerprint other = (BodyFingerprint) o;
+        return hi == other.hi && lo == other.lo;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hi ^ lo);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", hi, lo);
+    }
+}
@@ -1,48 +1,54 @@
 package dataset.creation.features;
 
-import java.util.*;
-
 import dataset.creation.features.metrics.MethodMetrics;
-import jakarta.json.bind.annotation.JsonbProperty;
+
+import java.util.Map;
+import java.util.Set;
 
 /**
- * Versione mutabile di BuggyInfo, con costruttore di default e setter.
+ * Esito del calcolo "buggy", in sola lettura: metodi toccati da un bug-fix e
+ * metriche di cambiamento per metodo, entrambi per id normalizzato.
+ * Implementazioni: {@link MapBuggyInfo} (appena calcolato) e
+ * {@link MappedBuggyInfo} (cache su disco mappata in memoria).
  */
-public class BuggyInfo {
-    // rimuoviamo final e usiamo campi protetti o pubblici
-    @JsonbProperty("buggyMethods")
-    private Set<String> buggyMethods = new HashSet<>();
-
-    @JsonbProperty("metricsByMethod")
-    private Map<String, MethodMetrics> metricsByMethod = new HashMap<>();
-
-    /** costruttore di default per JSON-B */
-    public BuggyInfo() { }
-
-    // costruttore di convenienza
-    public BuggyInfo(Set<String> buggyMethods,
-                     Map<String, MethodMetrics> metricsByMethod) {
-        this.buggyMethods    = buggyMethods;
-        this.metricsByMethod = metricsByMethod;
-    }
+public interface BuggyInfo {
 
-    // getter + setter
-    public Set<String> getBuggyMethods() {
-        return buggyMethods;
+    /** Risultato calcolato in memoria; le collezioni non vengono copiate. */
+    static BuggyInfo of(Set<String> buggyMethods, Map<String, MethodMetrics> metricsByMethod) {
+        return new MapBuggyInfo(buggyMethods, metricsByMethod);
     }
-    public void setBuggyMethods(Set<String> buggyMethods) {
-        this.buggyMethods = buggyMethods;
+
+    Set<String> getBuggyMethods();
+
+    Map<String, MethodMetrics> getMetricsByMethod();
+
+    /** Metriche di un singolo metodo, {@code null} se non ne ha. */
+    MethodMetrics getMetricsFor(String methodName);
+
+    /** {@code true} se il metodo (id normalizzato) è stato toccato da un bug-fix */
+    boolean isBuggy(String methodId);
+
+    /** come {@link #getMetricsFor(String)}, con una chiave già normalizzata */
+    default MethodMetrics getMetricsFor(MethodKey key) {
+        return getMetricsFor(key.toString());
     }
 
-    public Map<String, MethodMetrics> getMetricsByMethod() {
-        return metricsByMethod;
+    /** come {@link #isBuggy(String)}, con una chiave già normalizzata */
+    default boolean isBuggy(MethodKey key) {
+        return isBuggy(key.toString());
     }
-    public void setMetricsByMethod(Map<String, MethodMetrics> metricsByMethod) {
-        this.metricsByMethod = metricsByMethod;
+
+    /**
+     * Metriche del metodo {@code signature} di {@code fileName}, per id
+     * testuale: il dizionario delle chiavi vive solo durante il calcolo,
+     * quindi la ricerca non ne crea né ne richiede.
+     */
+    default MethodMetrics getMetricsFor(String fileName, String signature) {
+        return getMetricsFor(MethodKey.normalize(fileName + "#" + signature));
     }
 
-    /** comodo per recuperare direttamente le metriche di un singolo metodo */
-    public MethodMetrics getMetricsFor(String methodName) {
-        return metricsByMethod.get(methodName);
+    /** come {@link #getMetricsFor(String, String)} */
+    default boolean isBuggy(String fileName, String signature) {
+        return isBuggy(MethodKey.normalize(fileName + "#" + signature));
     }
 }
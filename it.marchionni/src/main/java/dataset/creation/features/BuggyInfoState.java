@@ -0,0 +1,48 @@
+package dataset.creation.features;
+
+import java.util.*;
+
+/**
+ * Stato persistente del calcolo buggy: watermark della storia già elaborata
+ * (teste e limite inferiore della visita, ticket di bug considerati) e
+ * accumulatori grezzi, da cui le medie e i massimi si ricalcolano esatti
+ * dopo aver aggiunto i commit nuovi.
+ */
+public class BuggyInfoState {
+
+    /** versione del formato: stati salvati con un'altra versione vengono ricalcolati */
+    public static final int FORMAT_VERSION = 3;
+
+    /** 0 negli stati salvati prima del versionamento */
+    private int formatVersion;
+    /** commit di partenza (tag + HEAD) dell'ultima elaborazione */
+    private List<String> heads = new ArrayList<>();
+    /** commit escluso con la sua storia (il primo tag) */
+    private String lowerBound;
+    /** chiavi dei ticket di bug già considerate, in maiuscolo */
+    private Set<String> bugKeys = new HashSet<>();
+
+    private Set<String> buggyMethods               = new HashSet<>();
+    private Map<String, MethodChangeStats> methods = new HashMap<>();
+
+    /** costruttore di default per JSON-B */
+    public BuggyInfoState() { }
+
+    public int getFormatVersion() { return formatVersion; }
+    public void setFormatVersion(int formatVersion) { this.formatVersion = formatVersion; }
+
+    public List<String> getHeads() { return heads; }
+    public void setHeads(List<String> heads) { this.heads = heads; }
+
+    public String getLowerBound() { return lowerBound; }
+    public void setLowerBound(String lowerBound) { this.lowerBound = lowerBound; }
+
+    public Set<String> getBugKeys() { return bugKeys; }
+    public void setBugKeys(Set<String> bugKeys) { this.bugKeys = bugKeys; }
+
+    public Set<String> getBuggyMethods() { return buggyMethods; }
+    public void setBuggyMethods(Set<String> buggyMethods) { this.buggyMethods = buggyMethods; }
+
+    public Map<String, MethodChangeStats> getMethods() { return methods; }
+    public void setMethods(Map<String, MethodChangeStats> methods) { this.methods = methods; }
+}
@@ -1,20 +1,26 @@
 package dataset.creation.features;
 
-import com.github.javaparser.StaticJavaParser;
-import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.body.MethodDeclaration;;
 import dataset.creation.fetcher.jira.JiraTicket;
+import dataset.creation.utils.PartialClone;
+import dataset.creation.utils.RepositoryService;
 import jakarta.json.bind.Jsonb;
 import jakarta.json.bind.JsonbBuilder;
-import com.github.javaparser.Range;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.diff.DiffAlgorithm;
 import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
-import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.eclipse.jgit.util.io.DisabledOutputStream;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffFormatter;
@@ -23,63 +29,85 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
-import dataset.creation.features.metrics.StructuralChangeMetrics;
-import dataset.creation.features.metrics.ComplexityMetrics;
-import dataset.creation.features.metrics.ElseMetrics;
-import dataset.creation.features.metrics.AddDeleteMetrics;
-import dataset.creation.features.metrics.MethodMetrics;
-
 /**
  * Estende il calcolo "buggy" usando il diff tra release consecutive,
  * senza DTO intermedi né PrettyPrinter, rimuovendo i commenti via AST.
  */
 public class BuggyMethodExtractor {
     private static final Logger logger = LoggerFactory.getLogger(BuggyMethodExtractor.class);
-    private static final String NEWLINE_REGEX = "\\r?\\n";
 
-    private static String normalizeId(String rawId) {
-        return rawId.replaceAll("\\s+", "");
-    }
+    /** Lo stesso algoritmo che il DiffFormatter usa di default (diff.algorithm = histogram). */
+    private static final DiffAlgorithm DIFF =
+            DiffAlgorithm.getAlgorithm(DiffAlgorithm.SupportedAlgorithm.HISTOGRAM);
+
     public static BuggyInfo computeOrLoad(
             File repoDir,
             List<JiraTicket> tickets,
             String projectKey,
             Path cacheDir
     ) throws Exception {
-        String cacheFileName = projectKey + "_buggy_info_cache.json";
-        File cache = cacheDir.resolve(cacheFileName).toFile();
-
-        if (cache.exists()) {
-            logger.info("🟡 Cache esistente, caricamento da: {}", cache);
-            try (Reader r = new FileReader(cache);
-                 Jsonb jsonb = JsonbBuilder.create()) {
-                return jsonb.fromJson(r, BuggyInfo.class);
-            }
-        }
-
-        logger.info("🔵 Nessuna cache trovata, computo da zero");
-        BuggyInfo info = computeBuggyMethods(repoDir, tickets, projectKey);
+        return computeOrLoad(repoDir, tickets, projectKey, cacheDir, 1);
+    }
 
-        try (Writer w = new FileWriter(cache);
-             Jsonb jsonb = JsonbBuilder.create()) {
-            jsonb.toJson(info, w);
-            logger.info("✅ Cache salvata in {}", cache.getPath());
+    /**
+     * Come {@link #computeOrLoad(File, List, String, Path)}, ma distribuisce i
+     * commit da elaborare su {@code workers} thread. Il risultato è identico
+     * a quello seriale.
+     *
+     * Lo stato in {@code <key>_buggy_state.json} registra le teste già
+     * elaborate e gli accumulatori grezzi: a ogni esecuzione si elaborano solo
+     * i commit nuovi (e quelli che citano ticket di bug comparsi nel frattempo)
+     * e le metriche si ricalcolano esatte dalla somma degli accumulatori.
+     * Le metriche finali sono salvate in {@code <key>_buggy_info_cache.bin}
+     * ({@link MappedBuggyInfo}): se la storia e i ticket non sono cambiati il
+     * file viene solo mappato in memoria, senza caricare lo stato.
+     */
+    public static BuggyInfo computeOrLoad(
+            File repoDir,
+            List<JiraTicket> tickets,
+            String projectKey,
+            Path cacheDir,
+            int workers
+    ) throws Exception {
+        try (RepositoryService service = RepositoryService.open(repoDir)) {
+            return computeOrLoad(service, tickets, projectKey, cacheDir, workers);
         }
-        return info;
     }
 
-    private static BuggyInfo computeBuggyMethods(File repoDir,
+    /**
+     * Come {@link #computeOrLoad(File, List, String, Path, int)}, sulla clone
+     * già aperta dal chiamante: pack, indici e reader restano condivisi con il
+     * resto della pipeline e il servizio non viene chiuso qui.
+     */
+    public static BuggyInfo computeOrLoad(
+            RepositoryService service,
+            List<JiraTicket> tickets,
+            String projectKey,
+            Path cacheDir,
+            int workers
+    ) throws Exception {
+        return computeBuggyMethods(service, tickets, projectKey, cacheDir, workers);
+    }
+
+    private static BuggyInfo computeBuggyMethods(RepositoryService service,
                                                  List<JiraTicket> tickets,
-                                                 String projectKey) throws Exception {
+                                                 String projectKey,
+                                                 Path cacheDir,
+                                                 int workers) throws Exception {
         // 1. Filtra i bug-fix tickets
         List<JiraTicket> bugTickets = tickets.stream()
                 .filter(t -> "bug".equalsIgnoreCase(t.getIssueType()))
@@ -93,14 +121,15 @@ public class BuggyMethodExtractor {
             logger.warn("Nessun ticket di bug valido trovato!");
             return emptyInfo();
         }
+        Set<String> bugKeys = bugTickets.stream()
+                .map(t -> t.getKey().toUpperCase())
+                .collect(Collectors.toSet());
 
-        // 2. Apri repository
-        Repository repository = new FileRepositoryBuilder()
-                .setGitDir(new File(repoDir,".git"))
-                .readEnvironment().findGitDir().build();
-        Git git = new Git(repository);
+        // 2. Repository condiviso con il resto della pipeline
+        Repository repository = service.repository();
+        Git git = Git.wrap(repository);
 
-        // 3. Leggi e ordina tag per data
+        // 3. Leggi i tag
         List<Ref> tags = git.tagList().call();
         if (tags.isEmpty()) {
             tags = git.lsRemote()
@@ -110,414 +139,568 @@ public class BuggyMethodExtractor {
                     .filter(r->r.getName().startsWith("refs/tags/"))
                     .collect(Collectors.toList());
         }
-        tags.sort(Comparator.comparing(ref -> {
-            try (RevWalk rw = new RevWalk(repository)) {
-                ObjectId id = Optional.ofNullable(ref.getPeeledObjectId())
-                        .orElse(ref.getObjectId());
-                return rw.parseCommit(id).getCommitTime();
-            } catch (Exception e) {
-                logger.error("Errore ordinamento tag",e);
-                return 0;
+
+        Path cache = cacheDir.resolve(projectKey + "_buggy_info_cache.bin");
+        Path statePath = cacheDir.resolve(projectKey + "_buggy_state.json");
+        BuggyInfoState state = new BuggyInfoState();
+        byte[] fingerprint;
+        ChangeAccumulator acc;
+        // chiavi dei metodi di questo calcolo: id densi da 0 per ogni
+        // progetto, e niente resta in memoria quando il calcolo finisce
+        MethodKeyDictionary keys = new MethodKeyDictionary();
+        try {
+            // 4. Un solo RevWalk su tutta la storia, con i tempi dei tag già calcolati
+            List<ReleasePoint> points = resolveReleasePoints(repository, tags);
+            List<ObjectId> tips = historyTips(repository, points);
+            String lowerBound = points.isEmpty() ? null : points.get(0).commit.name();
+
+            fingerprint = historyFingerprint(tips, lowerBound, bugKeys);
+            MappedBuggyInfo cached = openCache(cache, fingerprint);
+            if (cached != null) {
+                return cached;
+            }
+
+            List<RevCommit> commits = collectCommits(repository, points, tips);
+            if (logger.isDebugEnabled()) {
+                reportPairwiseOverlap(git, points, commits);
             }
-        }));
-
-        // 4. Strutture dati per raccolta raw
-        Set<String> buggyMethods   = new HashSet<>();
-        Map<String,Integer> churnMap    = new HashMap<>();
-        Map<String,Integer> elseAddMap  = new HashMap<>();
-        Map<String,Integer> elseDelMap  = new HashMap<>();
-        Map<String,Integer> condMap     = new HashMap<>();
-        Map<String,List<Integer>> addList   = new HashMap<>();
-        Map<String,List<Integer>> delList   = new HashMap<>();
-        Map<String,List<Integer>> churnList = new HashMap<>();
-        Map<String,Set<String>> authorMap    = new HashMap<>();
-        Map<String,Integer> histories    = new HashMap<>();
-
-        Pattern ticketPattern = Pattern.compile("(?i)"+Pattern.quote(projectKey)+"-\\d+");
-
-        // 5. Scorri le coppie di tag e processa commit
-        for (int i=1; i<tags.size(); i++) {
-            Ref prev = tags.get(i-1), curr = tags.get(i);
-            ObjectId prevId = Optional.ofNullable(prev.getPeeledObjectId())
-                    .orElse(prev.getObjectId());
-            ObjectId currId = Optional.ofNullable(curr.getPeeledObjectId())
-                    .orElse(curr.getObjectId());
-
-            try (RevWalk rw = new RevWalk(repository)) {
-                Iterable<RevCommit> commits = git.log()
-                        .addRange(prevId, currId).call();
-                for (RevCommit c: commits) {
-                    processCommit(c, repository, git,
-                            bugTickets, ticketPattern, projectKey,
-                            buggyMethods,
-                            churnMap, elseAddMap, elseDelMap, condMap,
-                            addList, delList, churnList, authorMap, histories);
+
+            // 5. Commit di bug-fix dall'indice ticket→commit (legge solo i messaggi nuovi)
+            TicketLinkIndex links = TicketLinkIndex.load(
+                    cacheDir.resolve(projectKey + "_ticket_links.json"), projectKey);
+            links.update(repository, tips);
+            links.save();
+
+            // 6. Stato precedente: riusabile solo se la storia già elaborata è ancora tutta presente
+            BuggyInfoState previous = loadState(statePath);
+            Set<ObjectId> done = reusableHistory(repository, previous, lowerBound, bugKeys, commits);
+
+            Map<ObjectId, Integer> mentions = links.bugFixMentions(bugKeys);
+            if (done != null) {
+                Set<String> newKeys = new HashSet<>(bugKeys);
+                newKeys.removeAll(previous.getBugKeys());
+                Map<ObjectId, Integer> newMentions = links.bugFixMentions(newKeys);
+                for (ObjectId id : done) {
+                    mentions.put(id, newMentions.getOrDefault(id, 0));
                 }
+                logger.info("Stato incrementale: {} commit già elaborati, {} nuovi, {} nuovi ticket di bug",
+                        done.size(), commits.size() - done.size(), newKeys.size());
             }
+            List<RevCommit> fixCommits = bugFixCommits(commits, mentions);
+
+            // 7. Processa i commit (serialmente o a blocchi contigui su più worker)
+            if (PartialClone.isPartial(repository)) {
+                prefetchJavaBlobs(repository, fixCommits);
+            }
+            ParsedBlobCache blobs = new ParsedBlobCache(ParsedBlobCache.DEFAULT_MAX_ENTRIES);
+            ChangeAccumulator delta = workers <= 1
+                    ? processCommits(fixCommits, repository, service.reader(), blobs, keys)
+                    : processCommitsInParallel(fixCommits, service, blobs, keys, workers);
+            logger.info("AST dei blob: {}", blobs);
+            acc = done != null ? ChangeAccumulator.fromState(previous, keys) : new ChangeAccumulator(keys);
+            acc.merge(delta);
+
+            state.setFormatVersion(BuggyInfoState.FORMAT_VERSION);
+            state.setHeads(tips.stream().map(ObjectId::name).collect(Collectors.toList()));
+            state.setLowerBound(lowerBound);
+            state.setBugKeys(bugKeys);
+        } finally {
+            git.close();
         }
 
-        // 6. Calcola metriche aggregate
-        Map<String,Double> avgAdd = calculateAverages(addList);
-        Map<String,Integer> maxAdd = calculateMaxValues(addList);
-        Map<String,Double> avgDel = calculateAverages(delList);
-        Map<String,Integer> maxDel = calculateMaxValues(delList);
-        Map<String,Double> avgCh  = calculateAverages(churnList);
-        Map<String,Integer> maxCh  = calculateMaxValues(churnList);
-        Map<String,Integer> authorCounts = calculateAuthorCounts(authorMap);
-
-        git.close();
-        repository.close();
-
-        // 7. Costruisci la mappa di MethodMetrics
-        Map<String, MethodMetrics> metricsByMethod = new HashMap<>();
-        Set<String> allIds = new HashSet<>();
-        allIds.addAll(churnMap.keySet());
-        allIds.addAll(elseAddMap.keySet());
-        allIds.addAll(elseDelMap.keySet());
-        allIds.addAll(condMap.keySet());
-        allIds.addAll(histories.keySet());
-        allIds.addAll(authorCounts.keySet());
-        allIds.addAll(avgAdd.keySet());
-        allIds.addAll(maxAdd.keySet());
-        allIds.addAll(avgDel.keySet());
-        allIds.addAll(maxDel.keySet());
-        allIds.addAll(avgCh.keySet());
-        allIds.addAll(maxCh.keySet());
-
-        for (String rawId : allIds) {
-            String id = normalizeId(rawId);
-            StructuralChangeMetrics structural =
-                    new StructuralChangeMetrics(
-                            churnMap.getOrDefault(rawId,0),
-                            avgCh.getOrDefault(rawId,0.0),
-                            maxCh.getOrDefault(rawId,0),
-                            condMap.getOrDefault(rawId,0)
-                    );
-            ComplexityMetrics complexity =
-                    new ComplexityMetrics(
-                            histories.getOrDefault(rawId,0),
-                            authorCounts.getOrDefault(rawId,0)
-                    );
-            ElseMetrics elseMetrics =
-                    new ElseMetrics(
-                            elseAddMap.getOrDefault(rawId,0),
-                            elseDelMap.getOrDefault(rawId,0)
-                    );
-            AddDeleteMetrics addDelete =
-                    new AddDeleteMetrics(
-                            avgAdd.getOrDefault(rawId,0.0),
-                            maxAdd.getOrDefault(rawId,0),
-                            avgDel.getOrDefault(rawId,0.0),
-                            maxDel.getOrDefault(rawId,0)
-                    );
-            metricsByMethod.put(id,
-                    new MethodMetrics(structural, complexity, elseMetrics, addDelete)
-            );
-        }
-        Set<String> normalizedBuggy = buggyMethods.stream()
-                .map(BuggyMethodExtractor::normalizeId)
-                .collect(Collectors.toSet());
-        return new BuggyInfo(buggyMethods, metricsByMethod);
-    }
+        acc.exportTo(state);
+        saveState(statePath, state);
 
-    private static BuggyInfo emptyInfo() {
-        return new BuggyInfo(
-                Collections.emptySet(),
-                Collections.emptyMap()
-        );
+        // 8. Metriche aggregate per metodo
+        BuggyInfo info = acc.toBuggyInfo();
+        MappedBuggyInfo.write(cache, info, fingerprint);
+        logger.info("✅ Cache salvata in {}", cache);
+        return info;
     }
 
-    private static void processCommit(RevCommit commit, Repository repository, Git git,
-                                      List<JiraTicket> bugTickets, Pattern ticketPattern,
-                                      String projectKey, Set<String> buggyMethods,
-                                      Map<String, Integer> churnMap,
-                                      Map<String, Integer> elseAddMap,
-                                      Map<String, Integer> elseDelMap,
-                                      Map<String, Integer> condMap,
-                                      Map<String, List<Integer>> addList,
-                                      Map<String, List<Integer>> delList,
-                                      Map<String, List<Integer>> churnList,
-                                      Map<String, Set<String>> authorMap,
-                                      Map<String, Integer> histories) throws IOException {
-
-        String commitMsg = commit.getFullMessage();
-        Matcher m = ticketPattern.matcher(commitMsg);
-
-        while (m.find()) {
-            String ticketKey = m.group().toUpperCase(); // Normalizza il case
-            boolean isBugFix = bugTickets.stream()
-                    .anyMatch(t -> t.getKey().equalsIgnoreCase(ticketKey));
-
-            if (isBugFix) {
-                logger.debug("Processing bug-fix commit {} for ticket {}",
-                        commit.name(), ticketKey);
-
-                try (DiffFormatter df = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
-                    df.setRepository(repository);
-                    df.setDiffComparator(RawTextComparator.DEFAULT);
-                    df.setDetectRenames(true);
-
-                    RevCommit[] parents = commit.getParents();
-                    if (parents == null || parents.length == 0) continue;
-
-                    for (DiffEntry diff : df.scan(parents[0], commit)) {
-                        if (shouldSkipDiffEntry(diff)) continue;
-
-                        processJavaFileDiff(diff, repository, commit, ticketKey,
-                                buggyMethods, churnMap, elseAddMap,
-                                elseDelMap, condMap, addList, delList,
-                                churnList, authorMap, histories);
-                    }
-                }
+    /** Cache binaria calcolata dalla stessa storia, oppure {@code null}. */
+    private static MappedBuggyInfo openCache(Path cache, byte[] fingerprint) {
+        if (!Files.exists(cache)) {
+            return null;
+        }
+        try {
+            // si mappa solo una cache valida: quella da aggiornare verrà
+            // sostituita e non deve restare mappata
+            if (Arrays.equals(MappedBuggyInfo.readFingerprint(cache), fingerprint)) {
+                MappedBuggyInfo info = MappedBuggyInfo.open(cache);
+                logger.info("🟡 Cache aggiornata, mappata da: {} ({} metodi)", cache, info.size());
+                return info;
             }
+            logger.info("Cache {} calcolata su una storia diversa, aggiorno", cache);
+        } catch (IOException e) {
+            logger.warn("Cache {} non leggibile, aggiorno", cache, e);
         }
+        return null;
     }
 
-    private static boolean shouldSkipDiffEntry(DiffEntry diff) {
-        if (diff.getChangeType() == DiffEntry.ChangeType.ADD) {
-            // Potresti voler processare anche i file nuovi
-            return false;
+    /** SHA-1 di teste, limite inferiore e ticket di bug: identifica l'input del calcolo. */
+    private static byte[] historyFingerprint(List<ObjectId> tips, String lowerBound,
+                                             Set<String> bugKeys) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 non disponibile", e);
         }
-        return diff.getChangeType() == DiffEntry.ChangeType.RENAME ||
-                !diff.getNewPath().endsWith(".java") ||
-                diff.getNewPath().contains("test/") ||
-                diff.getNewPath().contains("Test.java");
+        tips.stream().map(ObjectId::name).sorted()
+                .forEach(h -> md.update(("head " + h + "\n").getBytes(UTF_8)));
+        md.update(("base " + lowerBound + "\n").getBytes(UTF_8));
+        bugKeys.stream().sorted()
+                .forEach(k -> md.update(("bug " + k + "\n").getBytes(UTF_8)));
+        return md.digest();
     }
 
-    private static void processJavaFileDiff(DiffEntry diff, Repository repository,
-                                            RevCommit commit, String ticketKey,
-                                            Set<String> buggyMethods,
-                                            Map<String, Integer> churnMap,
-                                            Map<String, Integer> elseAddMap,
-                                            Map<String, Integer> elseDelMap,
-                                            Map<String, Integer> condMap,
-                                            Map<String, List<Integer>> addList,
-                                            Map<String, List<Integer>> delList,
-                                            Map<String, List<Integer>> churnList,
-                                            Map<String, Set<String>> authorMap,
-                                            Map<String, Integer> histories) throws IOException {
-
-        String newSrc = getFileContent(repository, diff.getNewId().toObjectId());
-        String oldSrc = getFileContent(repository, diff.getOldId().toObjectId());
-
-        CompilationUnit newCu = parseSafely(newSrc);
-        CompilationUnit oldCu = oldSrc.isEmpty() ? new CompilationUnit()
-                : parseSafely(oldSrc);
-
-        List<String> oldLines = oldSrc.isEmpty() ? List.of()
-                : Arrays.asList(oldSrc.split(NEWLINE_REGEX));
-        List<String> newLines = Arrays.asList(newSrc.split(NEWLINE_REGEX));
+    /* ---------------- stato incrementale ------------------------------- */
 
-        String author = commit.getAuthorIdent().getName();
-        String fileName = Paths.get(diff.getNewPath()).getFileName().toString();
-
-        for (MethodDeclaration newMd : newCu.findAll(MethodDeclaration.class)) {
-            newMd.getRange().ifPresent(newRange -> {
-                String methodSignature = newMd.getDeclarationAsString(false, false, false);
-                String rawId    = fileName + "#" + methodSignature;
-                String methodId = normalizeId(rawId);
-
-                Optional<MethodDeclaration> oldMdOpt = findMatchingMethod(oldCu, methodSignature);
-
-                if (oldMdOpt.isPresent()) {
-                    MethodDeclaration oldMd = oldMdOpt.get();
-                    oldMd.getRange().ifPresent(oldRange -> {
-                        processMethodChanges(diff, repository, newRange, oldRange,
-                                methodId, author, newLines, oldLines,
-                                buggyMethods, ticketKey, commit,
-                                churnMap, elseAddMap, elseDelMap,
-                                condMap, addList, delList, churnList,
-                                authorMap, histories, newMd, oldMd);
-                    });
-                }
-            });
+    private static BuggyInfoState loadState(Path statePath) {
+        if (!Files.exists(statePath)) {
+            logger.info("🔵 Nessuno stato precedente, computo da zero");
+            return null;
+        }
+        try (Reader r = Files.newBufferedReader(statePath, UTF_8);
+             Jsonb jsonb = JsonbBuilder.create()) {
+            BuggyInfoState s = jsonb.fromJson(r, BuggyInfoState.class);
+            if (s.getFormatVersion() != BuggyInfoState.FORMAT_VERSION) {
+                logger.info("Stato {} in un formato precedente, computo da zero", statePath);
+                return null;
+            }
+            logger.info("🟡 Stato precedente caricato da: {}", statePath);
+            return s;
+        } catch (Exception e) {
+            logger.warn("Stato {} non leggibile, computo da zero", statePath, e);
+            return null;
         }
     }
 
-    private static Optional<MethodDeclaration> findMatchingMethod(CompilationUnit cu,
-                                                                  String signature) {
-        return cu.findAll(MethodDeclaration.class).stream()
-                .filter(md -> md.getDeclarationAsString(false, false, false).equals(signature))
-                .findFirst();
+    private static void saveState(Path statePath, BuggyInfoState state) throws IOException {
+        try (Writer w = Files.newBufferedWriter(statePath, UTF_8);
+             Jsonb jsonb = JsonbBuilder.create()) {
+            jsonb.toJson(state, w);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Errore salvando lo stato buggy in " + statePath, e);
+        }
+        logger.info("✅ Stato salvato in {}", statePath);
     }
 
-    private static void processMethodChanges(DiffEntry diff, Repository repository,
-                                             Range newRange, Range oldRange,
-                                             String methodId, String author,
-                                             List<String> newLines, List<String> oldLines,
-                                             Set<String> buggyMethods, String ticketKey,
-                                             RevCommit commit,
-                                             Map<String, Integer> churnMap,
-                                             Map<String, Integer> elseAddMap,
-                                             Map<String, Integer> elseDelMap,
-                                             Map<String, Integer> condMap,
-                                             Map<String, List<Integer>> addList,
-                                             Map<String, List<Integer>> delList,
-                                             Map<String, List<Integer>> churnList,
-                                             Map<String, Set<String>> authorMap,
-                                             Map<String, Integer> histories,
-                                             MethodDeclaration newMd, MethodDeclaration oldMd) {
-        try {
-            DiffFormatter df = new DiffFormatter(DisabledOutputStream.INSTANCE);
-            df.setRepository(repository);
-
-            for (Edit edit : df.toFileHeader(diff).toEditList()) {
-                if (isEditInMethodRange(edit, newRange)) {
-                    processEdit(edit, methodId, author, newLines, oldLines,
-                            churnMap, elseAddMap, elseDelMap, condMap,
-                            addList, delList, churnList, authorMap, histories);
+    /**
+     * Commit già elaborati nell'esecuzione precedente, oppure {@code null} se lo
+     * stato non è riusabile: limite inferiore diverso, ticket di bug rimossi
+     * (non si possono sottrarre dagli accumulatori) o storia riscritta, cioè
+     * commit elaborati allora che non fanno più parte della visita.
+     */
+    private static Set<ObjectId> reusableHistory(Repository repository, BuggyInfoState previous,
+                                                 String lowerBound, Set<String> bugKeys,
+                                                 List<RevCommit> commits) throws IOException {
+        if (previous == null || lowerBound == null) {
+            return null;
+        }
+        if (!lowerBound.equals(previous.getLowerBound())) {
+            logger.info("Primo tag cambiato, computo da zero");
+            return null;
+        }
+        if (!bugKeys.containsAll(previous.getBugKeys())) {
+            logger.info("Ticket di bug rimossi dall'export, computo da zero");
+            return null;
+        }
+
+        Set<ObjectId> visited = new HashSet<>(commits);
+        Set<ObjectId> done = new HashSet<>();
+        try (RevWalk rw = new RevWalk(repository)) {
+            for (String head : previous.getHeads()) {
+                rw.markStart(rw.parseCommit(ObjectId.fromString(head)));
+            }
+            rw.markUninteresting(rw.parseCommit(ObjectId.fromString(lowerBound)));
+            for (RevCommit c : rw) {
+                if (!visited.contains(c)) {
+                    logger.info("Commit elaborato {} non più nella storia, computo da zero", c.name());
+                    return null;
                 }
+                done.add(c.copy());
             }
+        } catch (IOException | IllegalArgumentException e) {
+            logger.info("Teste precedenti non risolvibili, computo da zero");
+            return null;
+        }
+        return done;
+    }
 
-            // Verifica se il metodo è stato modificato in un bug-fix
-            if (isBuggyMethodChange(newMd, oldMd)) {
-                buggyMethods.add(methodId);
-                logger.debug("Identified buggy method: {} in commit {}",
-                        methodId, commit.name());
+    /** Tag risolto nel suo commit, con il tempo di commit già letto. */
+    private static final class ReleasePoint {
+        final String name;
+        final RevCommit commit;
+
+        ReleasePoint(String name, RevCommit commit) {
+            this.name   = name;
+            this.commit = commit;
+        }
+    }
+
+    /** Risolve ogni tag nel suo commit con un solo RevWalk e li ordina per tempo di commit. */
+    private static List<ReleasePoint> resolveReleasePoints(Repository repository, List<Ref> tags)
+            throws IOException {
+        List<ReleasePoint> points = new ArrayList<>();
+        try (RevWalk rw = new RevWalk(repository)) {
+            for (Ref ref : tags) {
+                ObjectId id = Optional.ofNullable(ref.getPeeledObjectId())
+                        .orElse(ref.getObjectId());
+                try {
+                    points.add(new ReleasePoint(ref.getName(), rw.parseCommit(id)));
+                } catch (IOException e) {
+                    logger.warn("Tag {} non risolvibile localmente, ignorato", ref.getName());
+                }
             }
-        } catch (IOException e) {
-            logger.error("Error processing method changes", e);
         }
+        points.sort(Comparator.comparingInt(p -> p.commit.getCommitTime()));
+        return points;
     }
 
-    private static boolean isEditInMethodRange(Edit edit, Range methodRange) {
-        return edit.getBeginB() <= methodRange.end.line &&
-                edit.getEndB() >= methodRange.begin.line;
+    /** Punti di partenza della visita: i commit dei tag e, se presente, HEAD. */
+    private static List<ObjectId> historyTips(Repository repository, List<ReleasePoint> points)
+            throws IOException {
+        List<ObjectId> tips = new ArrayList<>();
+        for (ReleasePoint p : points) {
+            tips.add(p.commit);
+        }
+        ObjectId head = repository.resolve(Constants.HEAD);
+        if (head != null) {
+            tips.add(head);
+        }
+        return tips;
     }
 
-    private static void processEdit(Edit edit, String methodId, String author,
-                                    List<String> newLines, List<String> oldLines,
-                                    Map<String, Integer> churnMap,
-                                    Map<String, Integer> elseAddMap,
-                                    Map<String, Integer> elseDelMap,
-                                    Map<String, Integer> condMap,
-                                    Map<String, List<Integer>> addList,
-                                    Map<String, List<Integer>> delList,
-                                    Map<String, List<Integer>> churnList,
-                                    Map<String, Set<String>> authorMap,
-                                    Map<String, Integer> histories) {
-        int added = edit.getEndB() - edit.getBeginB();
-        int deleted = edit.getEndA() - edit.getBeginA();
-        int churn = added + deleted;
+    /**
+     * Visita una sola volta tutti i commit raggiungibili dai tag e da HEAD ma non
+     * dal primo tag (stesso limite inferiore dello schema a coppie), inclusi quelli
+     * successivi all'ultimo tag. Ogni commit è attribuito al range di release che
+     * lo contiene confrontando il suo tempo con quelli dei tag.
+     */
+    private static List<RevCommit> collectCommits(Repository repository,
+                                                  List<ReleasePoint> points,
+                                                  List<ObjectId> tips) throws IOException {
+        List<RevCommit> commits = new ArrayList<>();
+        if (points.isEmpty()) {
+            logger.warn("Nessun tag risolvibile: nessun commit da elaborare");
+            return commits;
+        }
 
-        // Aggiorna le metriche
-        churnMap.merge(methodId, churn, Integer::sum);
-        addList.computeIfAbsent(methodId, k -> new ArrayList<>()).add(added);
-        delList.computeIfAbsent(methodId, k -> new ArrayList<>()).add(deleted);
-        churnList.computeIfAbsent(methodId, k -> new ArrayList<>()).add(churn);
-        authorMap.computeIfAbsent(methodId, k -> new HashSet<>()).add(author);
-        histories.merge(methodId, 1, Integer::sum);
-
-        // Analisi delle condizioni
-        analyzeConditions(edit, newLines, oldLines, methodId,
-                elseAddMap, elseDelMap, condMap);
+        int[] tagTimes = points.stream().mapToInt(p -> p.commit.getCommitTime()).toArray();
+        int[] perRange = new int[tagTimes.length + 1];
+
+        try (RevWalk rw = new RevWalk(repository)) {
+            for (ObjectId tip : tips) {
+                rw.markStart(rw.parseCommit(tip));
+            }
+            rw.markUninteresting(rw.parseCommit(points.get(0).commit));
+
+            for (RevCommit c : rw) {
+                commits.add(c);
+                perRange[releaseRangeOf(c.getCommitTime(), tagTimes)]++;
+            }
+        }
+
+        logger.info("Commit da analizzare (passaggio unico): {}, di cui {} dopo l'ultimo tag",
+                commits.size(), perRange[tagTimes.length]);
+        for (int i = 1; i < tagTimes.length; i++) {
+            logger.debug("   • {}: {} commit", points.get(i).name, perRange[i]);
+        }
+        return commits;
     }
 
-    private static void analyzeConditions(
-            Edit edit,
-            List<String> newLines,
-            List<String> oldLines,
-            String methodId,
-            Map<String, Integer> elseAddMap,
-            Map<String, Integer> elseDelMap,
-            Map<String, Integer> condMap) {
-
-        analyzeNewConditions(edit.getBeginB(), edit.getEndB(), newLines, methodId, elseAddMap, condMap);
-        analyzeOldConditions(edit.getBeginA(), edit.getEndA(), oldLines, methodId, elseDelMap);
+    /** Indice del primo tag con tempo ≥ {@code time}; {@code tagTimes.length} se successivo a tutti. */
+    private static int releaseRangeOf(int time, int[] tagTimes) {
+        int lo = 0;
+        int hi = tagTimes.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (tagTimes[mid] < time) lo = mid + 1; else hi = mid;
+        }
+        return lo;
     }
 
-    private static void analyzeNewConditions(
-            int start, int end,
-            List<String> lines,
-            String methodId,
-            Map<String, Integer> elseMap,
-            Map<String, Integer> condMap) {
-
-        for (int ln = start; ln < end && ln < lines.size(); ln++) {
-            String line = lines.get(ln);
-            if (line.contains("else")) {
-                elseMap.merge(methodId, 1, Integer::sum);
+    /**
+     * Diagnostica: confronta il passaggio unico con il vecchio schema a coppie
+     * ({@code git log prev..curr} per tag consecutivi) e riporta i commit che
+     * quello schema elaborava più volte o ignorava.
+     */
+    private static void reportPairwiseOverlap(Git git, List<ReleasePoint> points,
+                                              List<RevCommit> singlePass) throws Exception {
+        Map<ObjectId, Integer> seen = new HashMap<>();
+        for (int i = 1; i < points.size(); i++) {
+            for (RevCommit c : git.log()
+                    .addRange(points.get(i - 1).commit, points.get(i).commit).call()) {
+                seen.merge(c.copy(), 1, Integer::sum);
             }
-            if (line.contains("if") || line.contains("case") || line.contains("switch")) {
-                condMap.merge(methodId, 1, Integer::sum);
+        }
+        List<String> duplicated = seen.entrySet().stream()
+                .filter(e -> e.getValue() > 1)
+                .map(e -> e.getKey().name())
+                .sorted()
+                .collect(Collectors.toList());
+        long missed = singlePass.stream().filter(c -> !seen.containsKey(c)).count();
+
+        logger.debug("Schema a coppie: {} commit distinti, {} elaborati più volte {}, {} ignorati",
+                seen.size(), duplicated.size(), duplicated, missed);
+    }
+
+    /**
+     * Commit di bug-fix nell'ordine della visita, ripetuti una volta per ogni
+     * menzione di un ticket di bug nel messaggio (come la scansione con la regex).
+     */
+    private static List<RevCommit> bugFixCommits(List<RevCommit> commits,
+                                                 Map<ObjectId, Integer> mentions) {
+        List<RevCommit> out = new ArrayList<>();
+        for (RevCommit c : commits) {
+            int n = mentions.getOrDefault(c, 0);
+            for (int i = 0; i < n; i++) {
+                out.add(c);
             }
         }
+        logger.info("Commit di bug-fix da elaborare: {} (su {} visitati)", out.size(), commits.size());
+        return out;
     }
 
-    private static void analyzeOldConditions(
-            int start, int end,
-            List<String> lines,
-            String methodId,
-            Map<String, Integer> elseMap) {
+    /** Elabora i commit con il reader indicato. */
+    private static ChangeAccumulator processCommits(List<RevCommit> commits,
+                                                    Repository repository,
+                                                    ObjectReader reader,
+                                                    ParsedBlobCache blobs,
+                                                    MethodKeyDictionary keys) throws IOException {
+        ChangeAccumulator acc = new ChangeAccumulator(keys);
+        for (RevCommit c : commits) {
+            processCommit(c, repository, reader, blobs, acc);
+        }
+        return acc;
+    }
 
-        for (int ln = start; ln < end && ln < lines.size(); ln++) {
-            if (lines.get(ln).contains("else")) {
-                elseMap.merge(methodId, 1, Integer::sum);
+    /**
+     * Clone parziale: scarica in blocco i blob .java che i diff dei commit di
+     * bug-fix leggeranno (entrambi i lati, solo path .java), invece di
+     * recuperarli uno alla volta durante l'elaborazione.
+     */
+    private static void prefetchJavaBlobs(Repository repository, List<RevCommit> fixCommits)
+            throws IOException {
+        Set<ObjectId> ids = new HashSet<>();
+        try (TreeWalk tw = new TreeWalk(repository)) {
+            tw.setRecursive(true);
+            tw.setFilter(AndTreeFilter.create(PathSuffixFilter.create(".java"), TreeFilter.ANY_DIFF));
+            for (RevCommit c : fixCommits) {
+                if (c.getParentCount() == 0) continue;
+                tw.reset(c.getParent(0).getTree(), c.getTree());
+                while (tw.next()) {
+                    ids.add(tw.getObjectId(0));
+                    ids.add(tw.getObjectId(1));
+                }
             }
         }
+        PartialClone.fetchMissing(repository, ids);
     }
 
+    /**
+     * Divide i commit in blocchi contigui, ognuno con il proprio accumulatore,
+     * e fonde i parziali nell'ordine dei blocchi: stesso risultato del seriale.
+     * Ogni blocco usa un reader proprio, chiuso a fine blocco: i thread del
+     * pool non sopravvivono alla chiamata e la loro cache delle basi dei
+     * delta non deve restare legata al servizio.
+     */
+    private static ChangeAccumulator processCommitsInParallel(List<RevCommit> commits,
+                                                              RepositoryService service,
+                                                              ParsedBlobCache blobs,
+                                                              MethodKeyDictionary keys,
+                                                              int workers) throws IOException {
+        // più blocchi che worker, così i blocchi lenti non lasciano core fermi
+        int chunks = Math.min(commits.size(), workers * 4);
+        if (chunks <= 1) {
+            return processCommits(commits, service.repository(), service.reader(), blobs, keys);
+        }
 
-    private static boolean isBuggyMethodChange(MethodDeclaration newMd, MethodDeclaration oldMd) {
-        String oldBody = normalize(oldMd.getBody().map(Object::toString).orElse(""));
-        String newBody = normalize(newMd.getBody().map(Object::toString).orElse(""));
-        return !oldBody.equals(newBody);
-    }
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<ChangeAccumulator>> parts = new ArrayList<>(chunks);
+            for (int i = 0; i < chunks; i++) {
+                List<RevCommit> slice = commits.subList(
+                        (int) ((long) commits.size() * i / chunks),
+                        (int) ((long) commits.size() * (i + 1) / chunks));
+                parts.add(pool.submit(() -> {
+                    try (ObjectReader reader = service.newReader()) {
+                        return processCommits(slice, service.repository(), reader, blobs, keys);
+                    }
+                }));
+            }
 
-    private static String getFileContent(Repository repo, ObjectId objectId) throws IOException {
-        if (objectId.equals(ObjectId.zeroId())) {
-            return ""; // Restituisci stringa vuota per file nuovi
+            ChangeAccumulator acc = new ChangeAccumulator(keys);
+            for (Future<ChangeAccumulator> part : parts) {
+                acc.merge(part.get());
+            }
+            return acc;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Elaborazione commit interrotta");
+        } catch (ExecutionException e) {
+            throw new IOException("Errore nell'elaborazione parallela dei commit", e.getCause());
+        } finally {
+            pool.shutdownNow();
         }
-        return new String(repo.open(objectId).getBytes(), UTF_8);
     }
 
-    private static CompilationUnit parseSafely(String content) {
-        try {
-            return StaticJavaParser.parse(content);
-        } catch (Exception e) {
-            logger.warn("Error parsing Java file, returning empty compilation unit");
-            return new CompilationUnit();
+    private static BuggyInfo emptyInfo() {
+        return BuggyInfo.of(
+                Collections.emptySet(),
+                Collections.emptyMap()
+        );
+    }
+
+    /** Elabora i diff .java di un commit di bug-fix rispetto al primo genitore. */
+    private static void processCommit(RevCommit commit, Repository repository,
+                                      ObjectReader reader,
+                                      ParsedBlobCache blobs,
+                                      ChangeAccumulator acc) throws IOException {
+        RevCommit[] parents = commit.getParents();
+        if (parents == null || parents.length == 0) return;
+
+        logger.debug("Processing bug-fix commit {}", commit.name());
+
+        try (DiffFormatter df = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+            df.setReader(reader, repository.getConfig());
+            df.setDiffComparator(RawTextComparator.DEFAULT);
+            df.setDetectRenames(true);
+            // gli altri file non contribuiscono alle metriche: né i loro diff
+            // né il confronto per le rinomine devono leggerne i blob
+            df.setPathFilter(PathSuffixFilter.create(".java"));
+
+            for (DiffEntry diff : df.scan(parents[0], commit)) {
+                if (shouldSkipDiffEntry(diff)) continue;
+
+                processJavaFileDiff(diff, reader, commit, blobs, acc);
+            }
         }
     }
 
-    private static Map<String, Double> calculateAverages(Map<String, List<Integer>> data) {
-        return data.entrySet().stream()
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        e -> e.getValue().stream().mapToInt(i -> i).average().orElse(0.0)
-                ));
+    private static boolean shouldSkipDiffEntry(DiffEntry diff) {
+        if (diff.getChangeType() == DiffEntry.ChangeType.ADD) {
+            // Potresti voler processare anche i file nuovi
+            return false;
+        }
+        return diff.getChangeType() == DiffEntry.ChangeType.RENAME ||
+                !diff.getNewPath().endsWith(".java") ||
+                diff.getNewPath().contains("test/") ||
+                diff.getNewPath().contains("Test.java");
     }
 
-    private static Map<String, Integer> calculateMaxValues(Map<String, List<Integer>> data) {
-        return data.entrySet().stream()
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        e -> e.getValue().stream().mapToInt(i -> i).max().orElse(0)
-                ));
+    private static void processJavaFileDiff(DiffEntry diff,
+                                            ObjectReader reader, RevCommit commit,
+                                            ParsedBlobCache blobs,
+                                            ChangeAccumulator acc) throws IOException {
+
+        ParsedBlobCache.ParsedBlob newBlob = blobs.get(reader, diff.getNewId().toObjectId());
+        ParsedBlobCache.ParsedBlob oldBlob = blobs.get(reader, diff.getOldId().toObjectId());
+
+        String author = commit.getAuthorIdent().getName();
+        String fileName = Paths.get(diff.getNewPath()).getFileName().toString();
+
+        // metodi presenti in entrambe le versioni del file
+        MethodSignatureIndex newIndex = newBlob.methods;
+        MethodSignatureIndex oldIndex = oldBlob.methods;
+        List<MatchedMethod> matched = new ArrayList<>();
+        for (MethodSignatureIndex.Entry newEntry : newIndex.entries()) {
+            if (newEntry.range == null) continue;
+            MethodSignatureIndex.Entry oldEntry = oldIndex.find(newEntry.signature);
+            if (oldEntry == null || oldEntry.range == null) continue;
+
+            matched.add(new MatchedMethod(MethodKey.of(acc.keys(), fileName, newEntry.signature), newEntry, oldEntry));
+        }
+        if (matched.isEmpty()) return;
+
+        // edit list calcolata una sola volta per DiffEntry, sulle righe già
+        // in cache: toFileHeader rileggerebbe e indicizzerebbe entrambi i blob.
+        // Come il DiffFormatter, nessuna modifica se uno dei due lati è binario
+        EditList edits = RawText.isBinary(oldBlob.lines.getRawContent())
+                || RawText.isBinary(newBlob.lines.getRawContent())
+                ? new EditList()
+                : DIFF.diff(RawTextComparator.DEFAULT, oldBlob.lines, newBlob.lines);
+
+        EditKeywords keywords = new EditKeywords(newBlob.lines, oldBlob.lines);
+        MethodRangeIndex<MatchedMethod> index = new MethodRangeIndex<>(matched,
+                mm -> mm.newEntry.range.begin.line, mm -> mm.newEntry.range.end.line);
+        for (Edit edit : edits) {
+            index.forEachOverlapping(edit.getBeginB(), edit.getEndB(), mm ->
+                    processEdit(edit, mm.methodId, author, keywords, acc));
+        }
+
+        // Verifica se il metodo è stato modificato in un bug-fix
+        for (MatchedMethod mm : matched) {
+            if (isBuggyMethodChange(mm.newEntry, mm.oldEntry)) {
+                acc.markBuggy(mm.methodId);
+                logger.debug("Identified buggy method: {} in commit {}",
+                        mm.methodId, commit.name());
+            }
+        }
     }
 
-    private static Map<String, Integer> calculateAuthorCounts(Map<String, Set<String>> authorMap) {
-        return authorMap.entrySet().stream()
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        e -> e.getValue().size())
-                );
+    /** Metodo della nuova versione con il suo corrispondente nella vecchia. */
+    private static final class MatchedMethod {
+        final MethodKey methodId;
+        final MethodSignatureIndex.Entry newEntry;
+        final MethodSignatureIndex.Entry oldEntry;
+
+        MatchedMethod(MethodKey methodId,
+                      MethodSignatureIndex.Entry newEntry,
+                      MethodSignatureIndex.Entry oldEntry) {
+            this.methodId = methodId;
+            this.newEntry = newEntry;
+            this.oldEntry = oldEntry;
+        }
     }
 
-    private static String normalize(String body) {
-        if (body == null) return "";
+    private static void processEdit(Edit edit, MethodKey methodId, String author,
+                                    EditKeywords keywords, ChangeAccumulator acc) {
+        int added = edit.getEndB() - edit.getBeginB();
+        int deleted = edit.getEndA() - edit.getBeginA();
 
-        // 1. Rimuovi commenti
-        String noComments = body.replaceAll("(?s)/\\*.*?\\*/", "")  // commenti multilinea
-                .replaceAll("//.*", "");             // commenti singola linea
+        // Aggiorna le metriche
+        acc.recordEdit(methodId, author, added, deleted);
 
-        // 2. Normalizza spazi e newline
-        String normalized = noComments.replaceAll("\\s+", " ")
-                .trim();
+        // Parole chiave di controllo nelle righe aggiunte ed eliminate
+        keywords.scan(edit);
+        acc.countAdded(methodId, keywords.added);
+        acc.countDeleted(methodId, keywords.deleted);
+    }
 
-        // 3. Rimuovi spazi vicino a parentesi e operatori
-        normalized = normalized.replaceAll("\\s*([{}();=+\\-*/])\\s*", "$1");
+    /**
+     * Conteggi di {@link ChangeKeywordScanner} per l'ultima edit vista: le
+     * righe di una edit vengono analizzate una volta sola anche se la edit
+     * tocca più metodi. Un'istanza per file, array riusati tra le edit.
+     */
+    private static final class EditKeywords {
+        final SourceLines newLines;
+        final SourceLines oldLines;
+        final int[] added   = ChangeKeywordScanner.newCounts();
+        final int[] deleted = ChangeKeywordScanner.newCounts();
+        private Edit current;
+
+        EditKeywords(SourceLines newLines, SourceLines oldLines) {
+            this.newLines = newLines;
+            this.oldLines = oldLines;
+        }
+
+        void scan(Edit edit) {
+            if (edit == current) return;
+            ChangeKeywordScanner.scan(newLines, edit.getBeginB(), edit.getEndB(), added);
+            ChangeKeywordScanner.scan(oldLines, edit.getBeginA(), edit.getEndA(), deleted);
+            current = edit;
+        }
+    }
 
-        return normalized;
+    /** Corpo cambiato, a meno di formattazione e commenti (confronto delle impronte). */
+    private static boolean isBuggyMethodChange(MethodSignatureIndex.Entry newEntry,
+                                               MethodSignatureIndex.Entry oldEntry) {
+        return !oldEntry.bodyFingerprint().equals(newEntry.bodyFingerprint());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,169 @@
+package dataset.creation.features;
+
+import dataset.creation.features.metrics.AddDeleteMetrics;
+import dataset.creation.features.metrics.ComplexityMetrics;
+import dataset.creation.features.metrics.ControlFlowChangeMetrics;
+import dataset.creation.features.metrics.ElseMetrics;
+import dataset.creation.features.metrics.MethodMetrics;
+import dataset.creation.features.metrics.StructuralChangeMetrics;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Dati grezzi raccolti da {@link BuggyMethodExtractor} sui commit di bug-fix:
+ * metodi buggy e, per ogni metodo, un {@link MethodChangeStats} con churn,
+ * parole chiave di controllo, dimensioni delle edit e autori. Entrambi sono indicizzati
+ * per {@link MethodKey#id()}: bitset per i buggy, array per le statistiche.
+ *
+ * Ogni worker ne usa uno proprio; {@link #merge} li combina sommando i
+ * contatori e prendendo i massimi, quindi il risultato non dipende
+ * dall'ordine dei commit. Gli accumulatori fusi condividono lo stesso
+ * {@link MethodKeyDictionary}, quello del calcolo in corso.
+ */
+final class ChangeAccumulator {
+
+    private final MethodKeyDictionary keys;
+    private final BitSet buggyMethods = new BitSet();
+    private MethodChangeStats[] methods = new MethodChangeStats[64];
+
+    ChangeAccumulator(MethodKeyDictionary keys) {
+        this.keys = keys;
+    }
+
+    /** Dizionario che assegna gli id dei metodi di questo accumulatore. */
+    MethodKeyDictionary keys() {
+        return keys;
+    }
+
+    /* ---------------- raccolta ----------------------------------------- */
+
+    void recordEdit(MethodKey methodId, String author, int added, int deleted) {
+        statsFor(methodId).recordEdit(author, added, deleted);
+    }
+
+    /** {@code keywords}: conteggi di {@link ChangeKeywordScanner} sulle righe aggiunte. */
+    void countAdded(MethodKey methodId, int[] keywords) {
+        statsFor(methodId).countAdded(keywords);
+    }
+
+    /** {@code keywords}: conteggi di {@link ChangeKeywordScanner} sulle righe eliminate. */
+    void countDeleted(MethodKey methodId, int[] keywords) {
+        statsFor(methodId).countDeleted(keywords);
+    }
+
+    void markBuggy(MethodKey methodId) {
+        buggyMethods.set(methodId.id());
+    }
+
+    private MethodChangeStats statsFor(MethodKey methodId) {
+        int id = methodId.id();
+        if (id >= methods.length) {
+            methods = Arrays.copyOf(methods, Math.max(id + 1, methods.length * 2));
+        }
+        MethodChangeStats s = methods[id];
+        if (s == null) {
+            s = new MethodChangeStats();
+            methods[id] = s;
+        }
+        return s;
+    }
+
+    /* ---------------- merge -------------------------------------------- */
+
+    /** Aggiunge a questo accumulatore i dati di {@code other}, che non va più usato. */
+    void merge(ChangeAccumulator other) {
+        buggyMethods.or(other.buggyMethods);
+        if (other.methods.length > methods.length) {
+            methods = Arrays.copyOf(methods, other.methods.length);
+        }
+        for (int id = 0; id < other.methods.length; id++) {
+            MethodChangeStats theirs = other.methods[id];
+            if (theirs == null) continue;
+            if (methods[id] == null) methods[id] = theirs; else methods[id].merge(theirs);
+        }
+    }
+
+    /* ---------------- stato persistente -------------------------------- */
+
+    /** Ricostruisce un accumulatore dagli accumulatori grezzi salvati. */
+    static ChangeAccumulator fromState(BuggyInfoState state, MethodKeyDictionary keys) {
+        ChangeAccumulator acc = new ChangeAccumulator(keys);
+        for (String id : state.getBuggyMethods()) {
+            acc.markBuggy(MethodKey.parse(keys, id));
+        }
+        state.getMethods().forEach((id, s) -> acc.statsFor(MethodKey.parse(keys, id)).merge(s));
+        return acc;
+    }
+
+    /** Copia gli accumulatori grezzi in {@code state} (watermark esclusi). */
+    void exportTo(BuggyInfoState state) {
+        state.setBuggyMethods(buggyIds());
+        Map<String, MethodChangeStats> out = new HashMap<>();
+        forEachMethod((key, s) -> out.put(key.toString(), s));
+        state.setMethods(out);
+    }
+
+    /* ---------------- aggregazione finale ------------------------------ */
+
+    BuggyInfo toBuggyInfo() {
+        Map<String, MethodMetrics> metricsByMethod = new HashMap<>();
+        forEachMethod((key, s) -> {
+            StructuralChangeMetrics structural =
+                    new StructuralChangeMetrics(
+                            (int) s.getChurnSum(),
+                            s.avgChurn(),
+                            s.getChurnMax(),
+                            s.getCondChanges()
+                    );
+            ComplexityMetrics complexity =
+                    new ComplexityMetrics(
+                            s.getEdits(),
+                            s.getAuthors().size()
+                    );
+            ElseMetrics elseMetrics =
+                    new ElseMetrics(
+                            s.getElseAdded(),
+                            s.getElseDeleted()
+                    );
+            AddDeleteMetrics addDelete =
+                    new AddDeleteMetrics(
+                            s.avgAdded(),
+                            s.getAddedMax(),
+                            s.avgDeleted(),
+                            s.getDeletedMax()
+                    );
+            ControlFlowChangeMetrics controlFlow =
+                    new ControlFlowChangeMetrics(
+                            s.getLoopsAdded(),
+                            s.getTryCatchAdded(),
+                            s.getReturnsChanged()
+                    );
+            metricsByMethod.put(key.toString(),
+                    new MethodMetrics(structural, complexity, elseMetrics, addDelete, controlFlow)
+            );
+        });
+        return BuggyInfo.of(buggyIds(), metricsByMethod);
+    }
+
+    private Set<String> buggyIds() {
+        Set<String> out = new HashSet<>();
+        for (int id = buggyMethods.nextSetBit(0); id >= 0; id = buggyMethods.nextSetBit(id + 1)) {
+            out.add(keys.byId(id).toString());
+        }
+        return out;
+    }
+
+    private void forEachMethod(BiConsumer<MethodKey, MethodChangeStats> action) {
+        for (int id = 0; id < methods.length; id++) {
+            if (methods[id] != null) {
+                action.accept(keys.byId(id), methods[id]);
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package dataset.creation.features;
+
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Classifica le parole chiave di un intervallo di righe modificate con una
+ * sola passata sui byte del blob: un lexer Java ridotto riconosce
+ * identificatori interi, salta commenti, stringhe, text block e caratteri,
+ * e conta le parole chiave di controllo di flusso. A differenza di una
+ * ricerca per sottostringa, {@code verify} o {@code elseWhere} non contano
+ * come {@code if}/{@code else}.
+ *
+ * I conteggi finiscono in un {@code int[]} indicizzato dalle costanti qui
+ * sotto, riusabile tra un hunk e l'altro: nessuna allocazione per riga.
+ *
+ * Approssimazioni: l'hunk non porta con sé il contesto che lo precede, quindi
+ * si assume di partire fuori da commenti e stringhe, salvo una prima riga che
+ * inizia con {@code *} (continuazione tipica di un commento a blocco); il
+ * {@code while} finale di un do-while è riconosciuto dal {@code ;} dopo la
+ * condizione e non conta come secondo ciclo.
+ */
+final class ChangeKeywordScanner {
+
+    static final int IF     = 0;
+    static final int ELSE   = 1;
+    static final int CASE   = 2;
+    static final int SWITCH = 3;
+    static final int FOR    = 4;
+    static final int WHILE  = 5;
+    static final int DO     = 6;
+    static final int TRY    = 7;
+    static final int CATCH  = 8;
+    static final int RETURN = 9;
+    static final int KEYWORDS = 10;
+
+    private static final byte[][] WORDS = {
+            "if".getBytes(US_ASCII), "else".getBytes(US_ASCII), "case".getBytes(US_ASCII),
+            "switch".getBytes(US_ASCII), "for".getBytes(US_ASCII), "while".getBytes(US_ASCII),
+            "do".getBytes(US_ASCII), "try".getBytes(US_ASCII), "catch".getBytes(US_ASCII),
+            "return".getBytes(US_ASCII)
+    };
+
+    private ChangeKeywordScanner() { }
+
+    /** Nuovo array di conteggi, da passare a {@link #scan}. */
+    static int[] newCounts() {
+        return new int[KEYWORDS];
+    }
+
+    /**
+     * Azzera {@code counts} e vi somma le parole chiave delle righe
+     * {@code [from, to)} di {@code lines} (limitate alla fine del file).
+     */
+    static void scan(SourceLines lines, int from, int to, int[] counts) {
+        Arrays.fill(counts, 0);
+        int last = Math.min(to, lines.size());
+        if (from >= last) {
+            return;
+        }
+        byte[] b = lines.getRawContent();
+        int i   = lines.lineStart(from);
+        int end = lines.lineStart(last);
+
+        boolean inBlockComment = startsWithStar(b, i, end);
+        // while dopo la condizione di un do-while: si decide al primo token dopo le parentesi
+        int whileParens = -1;
+        boolean whilePending = false;
+
+        while (i < end) {
+            byte c = b[i];
+            if (inBlockComment) {
+                if (c == '*' && i + 1 < end && b[i + 1] == '/') {
+                    inBlockComment = false;
+                    i += 2;
+                } else {
+                    i++;
+                }
+                continue;
+            }
+            if (c == '/' && i + 1 < end && b[i + 1] == '/') {
+                i = skipToEol(b, i, end);
+            } else if (c == '/' && i + 1 < end && b[i + 1] == '*') {
+                inBlockComment = true;
+                i += 2;
+            } else if (c == '"') {
+                i = skipString(b, i, end);
+            } else if (c == '\'') {
+                i = skipChar(b, i, end);
+            } else if (isIdentifierStart(c)) {
+                int start = i;
+                do {
+                    i++;
+                } while (i < end && isIdentifierPart(b[i]));
+                if (whilePending) {
+                    whilePending = false;
+                    counts[WHILE]++;
+                }
+                int k = keyword(b, start, i - start);
+                if (k == WHILE) {
+                    whileParens = 0;
+                } else if (k >= 0) {
+                    counts[k]++;
+                }
+            } else if (isWhitespace(c)) {
+                i++;
+            } else {
+                if (whilePending) {
+                    whilePending = false;
+                    if (c != ';') counts[WHILE]++;
+                }
+                if (whileParens >= 0) {
+                    if (c == '(') {
+                        whileParens++;
+                    } else if (c == ')' && --whileParens == 0) {
+                        whileParens = -1;
+                        whilePending = true;
+                    }
+                }
+                i++;
+            }
+        }
+        if (whilePending || whileParens >= 0) {
+            // condizione o corpo fuori dall'hunk: conta come ciclo
+            counts[WHILE]++;
+        }
+    }
+
+    /* ---------------- lexer -------------------------------------------- */
+
+    private static int keyword(byte[] b, int start, int len) {
+        for (int k = 0; k < KEYWORDS; k++) {
+            byte[] w = WORDS[k];
+            if (w.length == len && regionEquals(b, start, w)) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionEquals(byte[] b, int start, byte[] w) {
+        for (int j = 0; j < w.length; j++) {
+            if (b[start + j] != w[j]) return false;
+        }
+        return true;
+    }
+
+    private static boolean startsWithStar(byte[] b, int i, int end) {
+        while (i < end && (b[i] == ' ' || b[i] == '\t')) i++;
+        return i < end && b[i] == '*' && !(i + 1 < end && b[i + 1] == '/');
+    }
+
+    private static int skipToEol(byte[] b, int i, int end) {
+        while (i < end && b[i] != '\n') i++;
+        return i;
+    }
+
+    /** Stringa o text block; una stringa normale non chiusa finisce a fine riga. */
+    private static int skipString(byte[] b, int i, int end) {
+        if (i + 2 < end && b[i + 1] == '"' && b[i + 2] == '"') {
+            i += 3;
+            while (i < end) {
+                if (b[i] == '\\') {
+                    i += 2;
+                } else if (b[i] == '"' && i + 2 < end && b[i + 1] == '"' && b[i + 2] == '"') {
+                    return i + 3;
+                } else {
+                    i++;
+                }
+            }
+            return end;
+        }
+        i++;
+        while (i < end && b[i] != '\n') {
+            if (b[i] == '\\') {
+                i += 2;
+            } else if (b[i++] == '"') {
+                return i;
+            }
+        }
+        return Math.min(i, end);
+    }
+
+    private static int skipChar(byte[] b, int i, int end) {
+        i++;
+        while (i < end && b[i] != '\n') {
+            if (b[i] == '\\') {
+                i += 2;
+            } else if (b[i++] == '\'') {
+                return i;
+            }
+        }
+        return Math.min(i, end);
+    }
+
+    /** I byte non ASCII (caratteri UTF-8 multibyte) valgono come parte di identificatore. */
+    private static boolean isIdentifierStart(byte c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$' || c < 0;
+    }
+
+    private static boolean isIdentifierPart(byte c) {
+        return isIdentifierStart(c) || (c >= '0' && c <= '9');
+    }
+
+    private static boolean isWhitespace(byte c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+}
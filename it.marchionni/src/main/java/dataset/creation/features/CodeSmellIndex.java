@@ -0,0 +1,72 @@
+package dataset.creation.features;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Violazioni PMD di una release, raggruppate per file.
+ * Per ogni file tiene le righe di inizio ordinate, così il conteggio
+ * dei code smell di un metodo è una coppia di ricerche binarie sul suo range.
+ *
+ * Si riempie (anche da più thread) tramite {@link #add(String, int)} e si
+ * congela con {@link #freeze()}; da quel momento è in sola lettura.
+ */
+public class CodeSmellIndex {
+
+    private final Map<String, List<Integer>> pending = new HashMap<>();
+    private Map<String, int[]> linesByFile = Map.of();
+
+    /** Registra una violazione riportata da PMD per {@code fileName}. */
+    synchronized void add(String fileName, int beginLine) {
+        pending.computeIfAbsent(key(fileName), k -> new ArrayList<>()).add(beginLine);
+    }
+
+    /** Ordina le righe raccolte e rende l'indice immutabile. */
+    synchronized CodeSmellIndex freeze() {
+        Map<String, int[]> frozen = new HashMap<>();
+        for (Map.Entry<String, List<Integer>> e : pending.entrySet()) {
+            int[] lines = e.getValue().stream().mapToInt(Integer::intValue).toArray();
+            Arrays.sort(lines);
+            frozen.put(e.getKey(), lines);
+        }
+        pending.clear();
+        linesByFile = frozen;
+        return this;
+    }
+
+    /** Numero totale di violazioni nel file. */
+    public int countFor(File file) {
+        return linesOf(file).length;
+    }
+
+    /** Violazioni che iniziano nelle righe [{@code begin}, {@code end}] del file. */
+    public int countBetween(File file, int begin, int end) {
+        int[] lines = linesOf(file);
+        if (lines.length == 0 || end < begin) return 0;
+        return lowerBound(lines, end + 1) - lowerBound(lines, begin);
+    }
+
+    private int[] linesOf(File file) {
+        return linesByFile.getOrDefault(key(file.getPath()), new int[0]);
+    }
+
+    private static int lowerBound(int[] a, int value) {
+        int lo = 0;
+        int hi = a.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < value) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    /** PMD riporta il path così come è stato registrato: lo normalizziamo. */
+    private static String key(String fileName) {
+        return Paths.get(fileName).toAbsolutePath().normalize().toString();
+    }
+}
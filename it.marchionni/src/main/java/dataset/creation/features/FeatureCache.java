@@ -0,0 +1,173 @@
+package dataset.creation.features;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache persistente delle feature per file, indirizzata per contenuto.
+ * La chiave è lo SHA-1 del blob Git del sorgente (lo stesso id che Git
+ * assegna al file), quindi un file identico in due release viene estratto
+ * una sola volta.
+ *
+ * Politica di eviction LRU con un numero massimo di file; contatori di
+ * hit/miss/eviction per il log di fine run. Thread-safe.
+ */
+public class FeatureCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeatureCache.class);
+
+    /**
+     * Versione del formato su disco. La 2 contiene le metriche del visitor a
+     * passata singola (complessità cognitiva secondo SonarSource): una cache
+     * di versione diversa si scarta e le feature si ricalcolano.
+     */
+    static final int FORMAT_VERSION = 2;
+
+    private final Path file;
+    private final int maxEntries;
+    private final LinkedHashMap<String, Map<String, MethodFeatures>> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private FeatureCache(Path file, int maxEntries) {
+        this.file       = file;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.entries    = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<String, MethodFeatures>> e) {
+                if (size() > FeatureCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /** Carica la cache da {@code file}; se manca o è illeggibile parte vuota. */
+    public static FeatureCache load(Path file, int maxEntries) {
+        FeatureCache cache = new FeatureCache(file, maxEntries);
+        if (!Files.exists(file)) {
+            return cache;
+        }
+        try (Reader r = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             Jsonb jsonb = JsonbBuilder.create()) {
+            Snapshot snap = jsonb.fromJson(r, Snapshot.class);
+            if (snap == null || snap.getFormatVersion() != FORMAT_VERSION) {
+                logger.info("Cache feature {} in un formato precedente, riparto da vuota", file);
+                return cache;
+            }
+            if (snap.getEntries() != null) {
+                for (Entry e : snap.getEntries()) {
+                    cache.entries.put(e.getBlobId(), e.getMethods());
+                }
+            }
+            cache.evictions = 0;
+            logger.info("🟡 Cache feature caricata da {} ({} file)", file, cache.entries.size());
+        } catch (Exception e) {
+            logger.warn("Cache feature {} non leggibile, riparto da vuota", file, e);
+            cache.entries.clear();
+        }
+        return cache;
+    }
+
+    /** Id del blob Git corrispondente al contenuto (uguale a {@code git hash-object}). */
+    public static String blobId(byte[] content) {
+        try (ObjectInserter.Formatter fmt = new ObjectInserter.Formatter()) {
+            return fmt.idFor(Constants.OBJ_BLOB, content).name();
+        }
+    }
+
+    public synchronized Map<String, MethodFeatures> get(String blobId) {
+        Map<String, MethodFeatures> m = entries.get(blobId);
+        if (m == null) misses++; else hits++;
+        return m;
+    }
+
+    public synchronized void put(String blobId, Map<String, MethodFeatures> features) {
+        entries.put(blobId, features);
+    }
+
+    /** Scrive la cache su disco, dalla voce meno recente alla più recente. */
+    public synchronized void save() throws IOException {
+        List<Entry> out = new ArrayList<>(entries.size());
+        for (Map.Entry<String, Map<String, MethodFeatures>> e : entries.entrySet()) {
+            out.add(new Entry(e.getKey(), e.getValue()));
+        }
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+             Jsonb jsonb = JsonbBuilder.create()) {
+            jsonb.toJson(new Snapshot(out), w);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Errore salvando la cache feature in " + file, e);
+        }
+        logger.info("✅ Cache feature salvata in {} ({} file)", file, out.size());
+    }
+
+    public synchronized long getHits()      { return hits; }
+    public synchronized long getMisses()    { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+    public synchronized int  size()         { return entries.size(); }
+
+    @Override
+    public synchronized String toString() {
+        long total = hits + misses;
+        return String.format("FeatureCache[size=%d, hit=%d, miss=%d, evicted=%d, hitRate=%.1f%%]",
+                entries.size(), hits, misses, evictions,
+                total == 0 ? 0.0 : 100.0 * hits / total);
+    }
+
+    /* ---------------- formato JSON-B su disco -------------------------- */
+
+    public static class Snapshot {
+        /** 0 nelle cache salvate prima del versionamento */
+        private int formatVersion;
+        private List<Entry> entries = new ArrayList<>();
+
+        public Snapshot() { /* JSON-B */ }
+        Snapshot(List<Entry> entries) {
+            this.formatVersion = FORMAT_VERSION;
+            this.entries = entries;
+        }
+
+        public int getFormatVersion() { return formatVersion; }
+        public void setFormatVersion(int formatVersion) { this.formatVersion = formatVersion; }
+
+        public List<Entry> getEntries() { return entries; }
+        public void setEntries(List<Entry> entries) { this.entries = entries; }
+    }
+
+    public static class Entry {
+        private String blobId;
+        private Map<String, MethodFeatures> methods;
+
+        public Entry() { /* JSON-B */ }
+        Entry(String blobId, Map<String, MethodFeatures> methods) {
+            this.blobId  = blobId;
+            this.methods = methods;
+        }
+
+        public String getBlobId() { return blobId; }
+        public void setBlobId(String blobId) { this.blobId = blobId; }
+        public Map<String, MethodFeatures> getMethods() { return methods; }
+        public void setMethods(Map<String, MethodFeatures> methods) { this.methods = methods; }
+    }
+}
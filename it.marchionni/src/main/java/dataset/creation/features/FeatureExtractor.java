@@ -1,21 +1,23 @@
 package dataset.creation.features;
 
-import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.MethodDeclaration;
-import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
 import dataset.creation.exceptions.FeatureExtractionException;
 import net.sourceforge.pmd.*;
 import net.sourceforge.pmd.lang.LanguageRegistry;
+import net.sourceforge.pmd.lang.document.FileCollector;
 import net.sourceforge.pmd.lang.java.JavaLanguageModule;
 import net.sourceforge.pmd.RuleSet;
 import net.sourceforge.pmd.RuleSetLoader;
 import net.sourceforge.pmd.renderers.AbstractRenderer;
-import net.sourceforge.pmd.renderers.Renderer;
 
 import java.io.File;
+import java.io.Writer;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -23,115 +25,150 @@ import java.util.logging.Logger;
  * Estrae le feature essenziali da un file .java, tra cui:
  *   • MethodLength, ParameterCount, NestingDepth, DecisionPoints
  *   • Cyclomatic / Cognitive Complexity
- *   • CodeSmells (PMD 6.55 violations, API non deprecate)
+ *   • CodeSmells (PMD 6.55 violations, API non deprecate), contate sul range
+ *     di righe del singolo metodo
+ *
+ * L'istanza non ha stato mutabile: ogni chiamata costruisce la propria
+ * analisi PMD e il proprio AST (con il parser del thread, vedi
+ * {@link ParserProvider}), quindi può essere condivisa tra più thread.
+ *
+ * Per una release intera conviene la modalità batch: {@link #collectCodeSmells}
+ * registra tutti i file in un'unica {@link PmdAnalysis} (PMD parte una sola volta
+ * e usa i propri thread), poi {@link #extractFromFile(File, CodeSmellIndex)}
+ * calcola solo le metriche AST.
  */
 public class FeatureExtractor {
 
+    private static final String RULESET = "category/java/bestpractices.xml";
+
+    static {
+        Logger.getLogger("net.sourceforge.pmd").setLevel(Level.SEVERE);
+    }
+
     public Map<String, MethodFeatures> extractFromFile(File javaFile)
             throws FeatureExtractionException {
+        CodeSmellIndex smells = collectCodeSmells(List.of(javaFile), 1);
+        return extractFromFile(javaFile, smells);
+    }
 
-        try {
-            Logger.getLogger("net.sourceforge.pmd").setLevel(Level.SEVERE);
+    /**
+     * Esegue PMD una sola volta su tutti i file indicati.
+     * @param threads thread usati internamente da PMD
+     */
+    public CodeSmellIndex collectCodeSmells(Collection<File> javaFiles, int threads)
+            throws FeatureExtractionException {
+        return runPmd(threads, javaFiles.size(),
+                files -> javaFiles.forEach(f -> files.addFile(f.toPath())));
+    }
+
+    /** Come {@link #collectCodeSmells(Collection, int)}, per sorgenti già in memoria. */
+    public CodeSmellIndex collectCodeSmellsFromSources(Collection<JavaSource> sources, int threads)
+            throws FeatureExtractionException {
+        return runPmd(threads, sources.size(),
+                files -> sources.forEach(s -> files.addSourceFile(s.getContent(), s.getFile().getPath())));
+    }
 
-            /* ---- 0) PMD code-smells con renderer custom -------------------- */
+    private CodeSmellIndex runPmd(int threads, int count, Consumer<FileCollector> registration)
+            throws FeatureExtractionException {
+
+        CodeSmellIndex index = new CodeSmellIndex();
+        try {
             PMDConfiguration cfg = new PMDConfiguration();
             cfg.setDefaultLanguageVersion(
                     LanguageRegistry.getLanguage(JavaLanguageModule.NAME).getDefaultVersion());
+            cfg.setThreads(Math.max(1, threads));
 
-            RuleSet ruleSet = new RuleSetLoader()
-                    .loadFromResource("category/java/bestpractices.xml");
-
-            final int[] smellCounter = {0};
-
-            Renderer collector = new AbstractRenderer("collector", "counts violations") {
-
-                @Override public String defaultFileExtension() { return "txt"; }
-                @Override public void start() {
-                    //empty
-                }
-                @Override public void startFileAnalysis(
-                        net.sourceforge.pmd.util.datasource.DataSource d) {
-                    //empty
-                }
-                @Override public void renderFileReport(Report rpt) {
-                    smellCounter[0] += rpt.getViolations().size();
-                }
-                @Override public void end() {
-                    //empty
-                }
-            };
+            RuleSet ruleSet = new RuleSetLoader().loadFromResource(RULESET);
 
             try (PmdAnalysis pmd = PmdAnalysis.create(cfg)) {
                 pmd.addRuleSet(ruleSet);
-                pmd.files().addFile(javaFile.toPath());
-                pmd.addRenderer(collector);
+                registration.accept(pmd.files());
+                pmd.addRenderer(new ViolationRouter(index));
                 pmd.performAnalysis();
             }
-            int codeSmellsCount = smellCounter[0];
+            return index.freeze();
+
+        } catch (Exception e) {
+            throw new FeatureExtractionException(
+                    "Errore eseguendo PMD su " + count + " file", e);
+        }
+    }
+
+    /** Metriche AST del file; i code smell arrivano da un'analisi PMD già eseguita. */
+    public Map<String, MethodFeatures> extractFromFile(File javaFile, CodeSmellIndex smells)
+            throws FeatureExtractionException {
+        try {
+            return extract(ParserProvider.parse(javaFile), javaFile, smells);
+        } catch (Exception e) {
+            throw new FeatureExtractionException(
+                    "Errore estraendo metriche da " + javaFile.getName(), e);
+        }
+    }
 
-            /* ---- 1) JavaParser AST metrics -------------------------------- */
-            CompilationUnit cu = StaticJavaParser.parse(javaFile);
-            Map<String, MethodFeatures> map = new HashMap<>();
+    /** Come {@link #extractFromFile(File, CodeSmellIndex)}, per un sorgente in memoria. */
+    public Map<String, MethodFeatures> extractFromSource(JavaSource source, CodeSmellIndex smells)
+            throws FeatureExtractionException {
+        try {
+            return extract(ParserProvider.parse(source.getContent()), source.getFile(), smells);
+        } catch (Exception e) {
+            throw new FeatureExtractionException(
+                    "Errore estraendo metriche da " + source.getFile().getName(), e);
+        }
+    }
 
-            for (MethodDeclaration md : cu.findAll(MethodDeclaration.class)) {
-                MethodFeatures f = new MethodFeatures();
+    private Map<String, MethodFeatures> extract(CompilationUnit cu, File javaFile,
+                                                CodeSmellIndex smells) {
+        Map<String, MethodFeatures> map = new HashMap<>();
 
-                int begin = md.getBegin().map(p -> p.line).orElse(0);
-                int end   = md.getEnd()  .map(p -> p.line).orElse(begin);
-                f.setMethodLength(end - begin + 1);
-                f.setParameterCount(md.getParameters().size());
+        for (MethodDeclaration md : cu.findAll(MethodDeclaration.class)) {
+            MethodFeatures f = new MethodFeatures();
 
-                DepthVisitor dv = new DepthVisitor();
-                dv.visit(md, 0);
-                f.setNestingDepth(dv.maxDepth);
-                f.setDecisionPoints(dv.decisionPoints);
-                f.setCyclomaticComplexity(f.getDecisionPoints() + 1);
-                f.setCognitiveComplexity(f.getDecisionPoints());
+            int begin = md.getBegin().map(p -> p.line).orElse(0);
+            int end   = md.getEnd()  .map(p -> p.line).orElse(begin);
+            f.setMethodLength(end - begin + 1);
+            f.setParameterCount(md.getParameters().size());
 
-                f.setCodeSmells(codeSmellsCount);
+            MethodMetricsVisitor mv = MethodMetricsVisitor.of(md);
+            f.setNestingDepth(mv.nestingDepth());
+            f.setDecisionPoints(mv.decisionPoints());
+            f.setCyclomaticComplexity(mv.cyclomaticComplexity());
+            f.setCognitiveComplexity(mv.cognitiveComplexity());
 
-                String sig = md.getDeclarationAsString(false, false, false);
-                map.put(sig, f);
-            }
-            return map;
+            f.setCodeSmells(smells.countBetween(javaFile, begin, end));
 
-        } catch (Exception e) {
-            throw new FeatureExtractionException(
-                    "Errore estraendo metriche da " + javaFile.getName(), e);
+            String sig = md.getDeclarationAsString(false, false, false);
+            map.put(sig, f);
         }
+        return map;
     }
 
 
-    /* ------------ helper per NestingDepth & DecisionPoints --------------- */
-    private static class DepthVisitor extends VoidVisitorAdapter<Integer> {
-        int maxDepth = 0;
-        int decisionPoints = 0;
+    /* ------------ renderer: instrada ogni violazione al suo file --------- */
+    private static class ViolationRouter extends AbstractRenderer {
+        private final CodeSmellIndex index;
 
-        @Override public void visit(com.github.javaparser.ast.stmt.IfStmt n, Integer d) {
-            super.visit(n, d);
-            decisionPoints++; int nd = d + 1; maxDepth = Math.max(maxDepth, nd);
-            n.getThenStmt().accept(this, nd);
-            n.getElseStmt().ifPresent(e -> e.accept(this, nd));
+        ViolationRouter(CodeSmellIndex index) {
+            super("router", "routes violations to their file");
+            this.index = index;
+            // senza writer PMD va in NPE nel flush finale dei renderer
+            setWriter(Writer.nullWriter());
         }
-        @Override public void visit(com.github.javaparser.ast.stmt.ForStmt n, Integer d) {
-            super.visit(n, d);
-            decisionPoints++; int nd = d + 1; maxDepth = Math.max(maxDepth, nd);
-            n.getBody().accept(this, nd);
+
+        @Override public String defaultFileExtension() { return "txt"; }
+        @Override public void start() {
+            //empty
         }
-        @Override public void visit(com.github.javaparser.ast.stmt.WhileStmt n, Integer d) {
-            super.visit(n, d);
-            decisionPoints++; int nd = d + 1; maxDepth = Math.max(maxDepth, nd);
-            n.getBody().accept(this, nd);
+        @Override public void startFileAnalysis(
+                net.sourceforge.pmd.util.datasource.DataSource d) {
+            //empty
         }
-        @Override public void visit(com.github.javaparser.ast.stmt.DoStmt n, Integer d) {
-            super.visit(n, d);
-            decisionPoints++; int nd = d + 1; maxDepth = Math.max(maxDepth, nd);
-            n.getBody().accept(this, nd);
+        @Override public void renderFileReport(Report rpt) {
+            for (RuleViolation v : rpt.getViolations()) {
+                index.add(v.getFilename(), v.getBeginLine());
+            }
         }
-        @Override public void visit(com.github.javaparser.ast.stmt.SwitchEntry n, Integer d) {
-            super.visit(n, d);
-            decisionPoints++; int nd = d + 1; maxDepth = Math.max(maxDepth, nd);
-            n.getStatements().forEach(s -> s.accept(this, nd));
+        @Override public void end() {
+            //empty
         }
     }
 }
@@ -0,0 +1,26 @@
+package dataset.creation.features;
+
+import java.io.File;
+import java.util.Objects;
+
+/**
+ * Sorgente .java già in memoria (letto da un blob Git, da uno ZIP, …).
+ * {@code file} è solo l'identità del sorgente nella release: serve come chiave
+ * dei risultati e per il nome file nel CSV, non deve esistere su disco.
+ */
+public final class JavaSource {
+
+    private final File   file;
+    private final String blobId;
+    private final String content;
+
+    public JavaSource(File file, String blobId, String content) {
+        this.file    = Objects.requireNonNull(file);
+        this.blobId  = Objects.requireNonNull(blobId);
+        this.content = Objects.requireNonNull(content);
+    }
+
+    public File   getFile()    { return file; }
+    public String getBlobId()  { return blobId; }
+    public String getContent() { return content; }
+}
@@ -0,0 +1,39 @@
+package dataset.creation.features;
+
+import dataset.creation.features.metrics.MethodMetrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/** {@link BuggyInfo} su un insieme e una mappa in memoria, esposti in sola lettura. */
+final class MapBuggyInfo implements BuggyInfo {
+
+    private final Set<String> buggyMethods;
+    private final Map<String, MethodMetrics> metricsByMethod;
+
+    MapBuggyInfo(Set<String> buggyMethods, Map<String, MethodMetrics> metricsByMethod) {
+        this.buggyMethods    = Collections.unmodifiableSet(buggyMethods);
+        this.metricsByMethod = Collections.unmodifiableMap(metricsByMethod);
+    }
+
+    @Override
+    public Set<String> getBuggyMethods() {
+        return buggyMethods;
+    }
+
+    @Override
+    public Map<String, MethodMetrics> getMetricsByMethod() {
+        return metricsByMethod;
+    }
+
+    @Override
+    public MethodMetrics getMetricsFor(String methodName) {
+        return metricsByMethod.get(methodName);
+    }
+
+    @Override
+    public boolean isBuggy(String methodId) {
+        return buggyMethods.contains(methodId);
+    }
+}
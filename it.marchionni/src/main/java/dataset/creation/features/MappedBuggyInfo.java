@@ -0,0 +1,345 @@
+package dataset.creation.features;
+
+import dataset.creation.features.metrics.AddDeleteMetrics;
+import dataset.creation.features.metrics.ComplexityMetrics;
+import dataset.creation.features.metrics.ControlFlowChangeMetrics;
+import dataset.creation.features.metrics.ElseMetrics;
+import dataset.creation.features.metrics.MethodMetrics;
+import dataset.creation.features.metrics.StructuralChangeMetrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * {@link BuggyInfo} letto da un file binario mappato in memoria, senza
+ * deserializzare il grafo di oggetti: le metriche di un metodo vengono
+ * costruite solo quando {@link #getMetricsFor} lo richiede.
+ *
+ * Formato (big-endian):
+ * <pre>
+ *   header   magic, versione, n. metodi, dimensione tabella, dimensione pool, fingerprint (20 byte)
+ *   tabella  hash a indirizzamento aperto: indice metodo + 1 (0 = vuoto)
+ *   offset   n + 1 offset nel pool delle stringhe
+ *   colonne  12 colonne int, 3 colonne double, 1 colonna di flag (buggy / con metriche)
+ *   pool     id dei metodi in UTF-8, ordinati
+ * </pre>
+ * Il fingerprint identifica lo stato della storia da cui il file è stato
+ * calcolato, così il chiamante può riusarlo senza ricalcolare nulla.
+ */
+public class MappedBuggyInfo implements BuggyInfo {
+
+    private static final int MAGIC   = 0x42474931;   // "BGI1"
+    private static final int VERSION = 2;
+    private static final int FINGERPRINT_BYTES = 20;
+    private static final int HEADER_BYTES = 5 * Integer.BYTES + FINGERPRINT_BYTES;
+
+    private static final int COL_CHURN        = 0;
+    private static final int COL_MAX_CHURN    = 1;
+    private static final int COL_COND         = 2;
+    private static final int COL_HISTORIES    = 3;
+    private static final int COL_AUTHORS      = 4;
+    private static final int COL_ELSE_ADDED   = 5;
+    private static final int COL_ELSE_DELETED = 6;
+    private static final int COL_MAX_ADDED    = 7;
+    private static final int COL_MAX_DELETED  = 8;
+    private static final int COL_LOOPS_ADDED  = 9;
+    private static final int COL_TRY_ADDED    = 10;
+    private static final int COL_RETURNS      = 11;
+    private static final int INT_COLUMNS      = 12;
+
+    private static final int COL_AVG_CHURN    = 0;
+    private static final int COL_AVG_ADDED    = 1;
+    private static final int COL_AVG_DELETED  = 2;
+    private static final int DOUBLE_COLUMNS   = 3;
+
+    private static final byte FLAG_BUGGY   = 1;
+    private static final byte FLAG_METRICS = 2;
+
+    private final ByteBuffer buf;
+    private final int count;
+    private final int tableSize;
+    private final int tableOff;
+    private final int offsetsOff;
+    private final int intColsOff;
+    private final int doubleColsOff;
+    private final int flagsOff;
+    private final int poolOff;
+
+    private Set<String> buggyView;
+    private Map<String, MethodMetrics> metricsView;
+
+    private MappedBuggyInfo(ByteBuffer buf) throws IOException {
+        this.buf = buf;
+        if (buf.capacity() < HEADER_BYTES || buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+            throw new IOException("Formato cache buggy non riconosciuto");
+        }
+        this.count     = buf.getInt(8);
+        this.tableSize = buf.getInt(12);
+        int poolSize   = buf.getInt(16);
+
+        this.tableOff      = HEADER_BYTES;
+        this.offsetsOff    = tableOff + Integer.BYTES * tableSize;
+        this.intColsOff    = offsetsOff + Integer.BYTES * (count + 1);
+        this.doubleColsOff = intColsOff + Integer.BYTES * INT_COLUMNS * count;
+        this.flagsOff      = doubleColsOff + Double.BYTES * DOUBLE_COLUMNS * count;
+        this.poolOff       = flagsOff + count;
+        if ((long) poolOff + poolSize != buf.capacity()) {
+            throw new IOException("Cache buggy troncata o corrotta");
+        }
+    }
+
+    /* ---------------- lettura ------------------------------------------ */
+
+    /** Mappa in memoria il file; il contenuto viene letto solo su richiesta. */
+    public static MappedBuggyInfo open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            return new MappedBuggyInfo(mapped);
+        }
+    }
+
+    /**
+     * Fingerprint dall'header del file, letto senza mapparlo: un file
+     * calcolato su una storia diversa verrà sostituito da {@link #write}, e
+     * una mappatura ancora aperta (non si può rilasciare esplicitamente)
+     * ne bloccherebbe la sostituzione su Windows.
+     */
+    public static byte[] readFingerprint(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (header.hasRemaining() && ch.read(header) >= 0) {
+                // header letto a blocchi finché il file lo consente
+            }
+        }
+        if (header.hasRemaining() || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("Formato cache buggy non riconosciuto");
+        }
+        return Arrays.copyOfRange(header.array(), 20, 20 + FINGERPRINT_BYTES);
+    }
+
+    @Override
+    public MethodMetrics getMetricsFor(String methodName) {
+        return metricsIfPresent(indexOf(methodName, methodName.hashCode()));
+    }
+
+    @Override
+    public MethodMetrics getMetricsFor(MethodKey key) {
+        return metricsIfPresent(indexOf(key.toString(), key.hashCode()));
+    }
+
+    @Override
+    public boolean isBuggy(String methodId) {
+        return isBuggyAt(indexOf(methodId, methodId.hashCode()));
+    }
+
+    @Override
+    public boolean isBuggy(MethodKey key) {
+        return isBuggyAt(indexOf(key.toString(), key.hashCode()));
+    }
+
+    /** Materializza l'insieme completo (solo per chi ne ha davvero bisogno). */
+    @Override
+    public synchronized Set<String> getBuggyMethods() {
+        if (buggyView == null) {
+            Set<String> out = new HashSet<>();
+            for (int i = 0; i < count; i++) {
+                if ((flags(i) & FLAG_BUGGY) != 0) out.add(idAt(i));
+            }
+            buggyView = Collections.unmodifiableSet(out);
+        }
+        return buggyView;
+    }
+
+    /** Materializza la mappa completa (solo per chi ne ha davvero bisogno). */
+    @Override
+    public synchronized Map<String, MethodMetrics> getMetricsByMethod() {
+        if (metricsView == null) {
+            Map<String, MethodMetrics> out = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                if ((flags(i) & FLAG_METRICS) != 0) out.put(idAt(i), metricsAt(i));
+            }
+            metricsView = Collections.unmodifiableMap(out);
+        }
+        return metricsView;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    private MethodMetrics metricsIfPresent(int idx) {
+        return idx < 0 || (flags(idx) & FLAG_METRICS) == 0 ? null : metricsAt(idx);
+    }
+
+    private boolean isBuggyAt(int idx) {
+        return idx >= 0 && (flags(idx) & FLAG_BUGGY) != 0;
+    }
+
+    /** {@code hash} è {@code id.hashCode()}, già noto per i {@link MethodKey}. */
+    private int indexOf(String id, int hash) {
+        if (count == 0) return -1;
+        byte[] key = id.getBytes(UTF_8);
+        int mask = tableSize - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int v = buf.getInt(tableOff + Integer.BYTES * slot);
+            if (v == 0) return -1;
+            if (idEquals(v - 1, key)) return v - 1;
+        }
+    }
+
+    private boolean idEquals(int idx, byte[] key) {
+        int from = buf.getInt(offsetsOff + Integer.BYTES * idx);
+        int to   = buf.getInt(offsetsOff + Integer.BYTES * (idx + 1));
+        if (to - from != key.length) return false;
+        for (int i = 0; i < key.length; i++) {
+            if (buf.get(poolOff + from + i) != key[i]) return false;
+        }
+        return true;
+    }
+
+    private String idAt(int idx) {
+        int from = buf.getInt(offsetsOff + Integer.BYTES * idx);
+        int to   = buf.getInt(offsetsOff + Integer.BYTES * (idx + 1));
+        byte[] raw = new byte[to - from];
+        for (int i = 0; i < raw.length; i++) {
+            raw[i] = buf.get(poolOff + from + i);
+        }
+        return new String(raw, UTF_8);
+    }
+
+    private byte flags(int idx) {
+        return buf.get(flagsOff + idx);
+    }
+
+    private int intAt(int column, int idx) {
+        return buf.getInt(intColsOff + Integer.BYTES * (column * count + idx));
+    }
+
+    private double doubleAt(int column, int idx) {
+        return buf.getDouble(doubleColsOff + Double.BYTES * (column * count + idx));
+    }
+
+    private MethodMetrics metricsAt(int idx) {
+        return new MethodMetrics(
+                new StructuralChangeMetrics(
+                        intAt(COL_CHURN, idx), doubleAt(COL_AVG_CHURN, idx),
+                        intAt(COL_MAX_CHURN, idx), intAt(COL_COND, idx)),
+                new ComplexityMetrics(
+                        intAt(COL_HISTORIES, idx), intAt(COL_AUTHORS, idx)),
+                new ElseMetrics(
+                        intAt(COL_ELSE_ADDED, idx), intAt(COL_ELSE_DELETED, idx)),
+                new AddDeleteMetrics(
+                        doubleAt(COL_AVG_ADDED, idx), intAt(COL_MAX_ADDED, idx),
+                        doubleAt(COL_AVG_DELETED, idx), intAt(COL_MAX_DELETED, idx)),
+                new ControlFlowChangeMetrics(
+                        intAt(COL_LOOPS_ADDED, idx), intAt(COL_TRY_ADDED, idx),
+                        intAt(COL_RETURNS, idx)));
+    }
+
+    /* ---------------- scrittura ---------------------------------------- */
+
+    /**
+     * Scrive {@code info} nel formato binario, passando da un file temporaneo
+     * così un lettore non vede mai un file a metà.
+     */
+    public static void write(Path file, BuggyInfo info, byte[] fingerprint) throws IOException {
+        if (fingerprint.length != FINGERPRINT_BYTES) {
+            throw new IllegalArgumentException("Fingerprint di " + FINGERPRINT_BYTES + " byte atteso");
+        }
+        SortedSet<String> ids = new TreeSet<>(info.getMetricsByMethod().keySet());
+        ids.addAll(info.getBuggyMethods());
+
+        int n = ids.size();
+        int tableSize = Integer.highestOneBit(Math.max(1, 2 * n - 1)) << 1;
+        byte[][] names = new byte[n][];
+        int poolSize = 0;
+        int k = 0;
+        for (String id : ids) {
+            names[k] = id.getBytes(UTF_8);
+            poolSize += names[k++].length;
+        }
+
+        long total = (long) HEADER_BYTES + Integer.BYTES * (long) tableSize
+                + Integer.BYTES * (n + 1L) + Integer.BYTES * (long) INT_COLUMNS * n
+                + Double.BYTES * (long) DOUBLE_COLUMNS * n + n + poolSize;
+        if (total > Integer.MAX_VALUE) {
+            throw new IOException("Cache buggy troppo grande per il formato binario");
+        }
+        ByteBuffer out = ByteBuffer.allocate((int) total);
+        out.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(tableSize).putInt(poolSize).put(fingerprint);
+
+        int tableOff      = HEADER_BYTES;
+        int offsetsOff    = tableOff + Integer.BYTES * tableSize;
+        int intColsOff    = offsetsOff + Integer.BYTES * (n + 1);
+        int doubleColsOff = intColsOff + Integer.BYTES * INT_COLUMNS * n;
+        int flagsOff      = doubleColsOff + Double.BYTES * DOUBLE_COLUMNS * n;
+        int poolOff       = flagsOff + n;
+
+        int mask = tableSize - 1;
+        int pos = 0;
+        int idx = 0;
+        for (String id : ids) {
+            int slot = spread(id.hashCode()) & mask;
+            while (out.getInt(tableOff + Integer.BYTES * slot) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            out.putInt(tableOff + Integer.BYTES * slot, idx + 1);
+
+            out.putInt(offsetsOff + Integer.BYTES * idx, pos);
+            for (byte b : names[idx]) {
+                out.put(poolOff + pos++, b);
+            }
+
+            MethodMetrics mm = info.getMetricsByMethod().get(id);
+            byte flags = info.getBuggyMethods().contains(id) ? FLAG_BUGGY : 0;
+            if (mm != null) {
+                flags |= FLAG_METRICS;
+                int[] ints = {
+                        mm.getStructural().getChurn(),
+                        mm.getStructural().getMaxChurn(),
+                        mm.getStructural().getCondChanges(),
+                        mm.getComplexity().getHistoryCount(),
+                        mm.getComplexity().getAuthorCount(),
+                        mm.getElseMetrics().getElseAdded(),
+                        mm.getElseMetrics().getElseDeleted(),
+                        mm.getAddDelete().getMaxAdded(),
+                        mm.getAddDelete().getMaxDeleted(),
+                        mm.getControlFlow().getLoopsAdded(),
+                        mm.getControlFlow().getTryCatchAdded(),
+                        mm.getControlFlow().getReturnsChanged()
+                };
+                for (int c = 0; c < INT_COLUMNS; c++) {
+                    out.putInt(intColsOff + Integer.BYTES * (c * n + idx), ints[c]);
+                }
+                double[] doubles = {
+                        mm.getStructural().getAvgChurn(),
+                        mm.getAddDelete().getAvgAdded(),
+                        mm.getAddDelete().getAvgDeleted()
+                };
+                for (int c = 0; c < DOUBLE_COLUMNS; c++) {
+                    out.putDouble(doubleColsOff + Double.BYTES * (c * n + idx), doubles[c]);
+                }
+            }
+            out.put(flagsOff + idx, flags);
+            idx++;
+        }
+        out.putInt(offsetsOff + Integer.BYTES * n, pos);
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, out.array());
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+}
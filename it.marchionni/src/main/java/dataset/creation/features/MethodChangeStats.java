@@ -0,0 +1,123 @@
+package dataset.creation.features;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Statistiche di modifica di un singolo metodo nei commit di bug-fix,
+ * tenute come contatori primitivi: numero di edit, somma e massimo di righe
+ * aggiunte/eliminate/churn, contatori delle parole chiave di controllo
+ * (da {@link ChangeKeywordScanner}), autori.
+ * Medie e massimi si ottengono senza conservare le singole edit.
+ *
+ * Getter e setter pubblici servono solo alla serializzazione JSON-B dello stato.
+ */
+public class MethodChangeStats {
+
+    private int edits;
+    private long addedSum;
+    private int addedMax;
+    private long deletedSum;
+    private int deletedMax;
+    private long churnSum;
+    private int churnMax;
+    private int elseAdded;
+    private int elseDeleted;
+    private int condChanges;
+    private int loopsAdded;
+    private int tryCatchAdded;
+    private int returnsChanged;
+    private Set<String> authors = new HashSet<>();
+
+    /** costruttore di default per JSON-B */
+    public MethodChangeStats() { }
+
+    /* ---------------- raccolta ----------------------------------------- */
+
+    void recordEdit(String author, int added, int deleted) {
+        int churn = added + deleted;
+        edits++;
+        addedSum   += added;
+        addedMax    = Math.max(addedMax, added);
+        deletedSum += deleted;
+        deletedMax  = Math.max(deletedMax, deleted);
+        churnSum   += churn;
+        churnMax    = Math.max(churnMax, churn);
+        authors.add(author);
+    }
+
+    /** Parole chiave contate nelle righe aggiunte da una edit. */
+    void countAdded(int[] k) {
+        elseAdded      += k[ChangeKeywordScanner.ELSE];
+        condChanges    += k[ChangeKeywordScanner.IF] + k[ChangeKeywordScanner.CASE]
+                        + k[ChangeKeywordScanner.SWITCH];
+        loopsAdded     += k[ChangeKeywordScanner.FOR] + k[ChangeKeywordScanner.WHILE]
+                        + k[ChangeKeywordScanner.DO];
+        tryCatchAdded  += k[ChangeKeywordScanner.TRY] + k[ChangeKeywordScanner.CATCH];
+        returnsChanged += k[ChangeKeywordScanner.RETURN];
+    }
+
+    /** Parole chiave contate nelle righe eliminate da una edit. */
+    void countDeleted(int[] k) {
+        elseDeleted    += k[ChangeKeywordScanner.ELSE];
+        returnsChanged += k[ChangeKeywordScanner.RETURN];
+    }
+
+    void merge(MethodChangeStats other) {
+        edits       += other.edits;
+        addedSum    += other.addedSum;
+        addedMax     = Math.max(addedMax, other.addedMax);
+        deletedSum  += other.deletedSum;
+        deletedMax   = Math.max(deletedMax, other.deletedMax);
+        churnSum    += other.churnSum;
+        churnMax     = Math.max(churnMax, other.churnMax);
+        elseAdded   += other.elseAdded;
+        elseDeleted += other.elseDeleted;
+        condChanges += other.condChanges;
+        loopsAdded     += other.loopsAdded;
+        tryCatchAdded  += other.tryCatchAdded;
+        returnsChanged += other.returnsChanged;
+        authors.addAll(other.authors);
+    }
+
+    /* ---------------- valori derivati ---------------------------------- */
+
+    double avgAdded()   { return average(addedSum); }
+    double avgDeleted() { return average(deletedSum); }
+    double avgChurn()   { return average(churnSum); }
+
+    private double average(long sum) {
+        return edits == 0 ? 0.0 : (double) sum / edits;
+    }
+
+    /* ---------------- JSON-B ------------------------------------------- */
+
+    public int getEdits() { return edits; }
+    public void setEdits(int edits) { this.edits = edits; }
+    public long getAddedSum() { return addedSum; }
+    public void setAddedSum(long addedSum) { this.addedSum = addedSum; }
+    public int getAddedMax() { return addedMax; }
+    public void setAddedMax(int addedMax) { this.addedMax = addedMax; }
+    public long getDeletedSum() { return deletedSum; }
+    public void setDeletedSum(long deletedSum) { this.deletedSum = deletedSum; }
+    public int getDeletedMax() { return deletedMax; }
+    public void setDeletedMax(int deletedMax) { this.deletedMax = deletedMax; }
+    public long getChurnSum() { return churnSum; }
+    public void setChurnSum(long churnSum) { this.churnSum = churnSum; }
+    public int getChurnMax() { return churnMax; }
+    public void setChurnMax(int churnMax) { this.churnMax = churnMax; }
+    public int getElseAdded() { return elseAdded; }
+    public void setElseAdded(int elseAdded) { this.elseAdded = elseAdded; }
+    public int getElseDeleted() { return elseDeleted; }
+    public void setElseDeleted(int elseDeleted) { this.elseDeleted = elseDeleted; }
+    public int getCondChanges() { return condChanges; }
+    public void setCondChanges(int condChanges) { this.condChanges = condChanges; }
+    public int getLoopsAdded() { return loopsAdded; }
+    public void setLoopsAdded(int loopsAdded) { this.loopsAdded = loopsAdded; }
+    public int getTryCatchAdded() { return tryCatchAdded; }
+    public void setTryCatchAdded(int tryCatchAdded) { this.tryCatchAdded = tryCatchAdded; }
+    public int getReturnsChanged() { return returnsChanged; }
+    public void setReturnsChanged(int returnsChanged) { this.returnsChanged = returnsChanged; }
+    public Set<String> getAuthors() { return authors; }
+    public void setAuthors(Set<String> authors) { this.authors = authors; }
+}
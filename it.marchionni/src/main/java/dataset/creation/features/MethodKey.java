@@ -0,0 +1,75 @@
+package dataset.creation.features;
+
+/**
+ * Identità canonica di un metodo: {@code NomeFile.java#firma} senza spazi.
+ *
+ * La normalizzazione avviene una sola volta, alla creazione; le chiavi sono
+ * internate nel {@link MethodKeyDictionary} del calcolo, che assegna a
+ * ciascuna un id intero denso utilizzabile come indice di array e bitset. L'hash è
+ * precalcolato ed è lo stesso di {@link String#hashCode()} sul valore testuale.
+ */
+public final class MethodKey {
+
+    private final String value;
+    private final int id;
+    private final int hash;
+
+    MethodKey(String value, int id) {
+        this.value = value;
+        this.id    = id;
+        this.hash  = value.hashCode();
+    }
+
+    /** Chiave in {@code keys} del metodo {@code signature} del file {@code fileName}. */
+    public static MethodKey of(MethodKeyDictionary keys, String fileName, String signature) {
+        return keys.intern(normalize(fileName + "#" + signature));
+    }
+
+    /** Chiave in {@code keys} da un id testuale già composto (es. letto da una cache). */
+    public static MethodKey parse(MethodKeyDictionary keys, String methodId) {
+        return keys.intern(normalize(methodId));
+    }
+
+    /** Id intero denso assegnato dal dizionario. */
+    public int id() {
+        return id;
+    }
+
+    /** Rimuove gli spazi come {@code replaceAll("\\s+", "")}, senza regex. */
+    static String normalize(String raw) {
+        int n = raw.length();
+        StringBuilder sb = null;
+        for (int i = 0; i < n; i++) {
+            char c = raw.charAt(i);
+            if (isRegexSpace(c)) {
+                if (sb == null) {
+                    sb = new StringBuilder(n).append(raw, 0, i);
+                }
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        return sb == null ? raw : sb.toString();
+    }
+
+    /** Stessi caratteri della classe {@code \s} delle regex Java. */
+    private static boolean isRegexSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        return o instanceof MethodKey && value.equals(((MethodKey) o).value);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
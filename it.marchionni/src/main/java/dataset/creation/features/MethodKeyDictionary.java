@@ -0,0 +1,47 @@
+package dataset.creation.features;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dizionario dei {@link MethodKey} di un calcolo: a ogni id testuale
+ * normalizzato corrisponde un'unica istanza con un id intero progressivo
+ * (0, 1, 2, …). Ne esiste uno per ogni esecuzione di
+ * {@link BuggyMethodExtractor}, condiviso dai suoi worker e lasciato al GC
+ * alla fine, così progetti diversi nello stesso processo non si sommano.
+ * Le letture non prendono lock; solo l'inserimento di una chiave nuova è
+ * sincronizzato. Thread-safe.
+ */
+public final class MethodKeyDictionary {
+
+    private final ConcurrentHashMap<String, MethodKey> byValue = new ConcurrentHashMap<>();
+    private final List<MethodKey> byId = new ArrayList<>();
+
+    /** Istanza canonica per un id già normalizzato. */
+    MethodKey intern(String normalized) {
+        MethodKey key = byValue.get(normalized);
+        if (key != null) {
+            return key;
+        }
+        synchronized (this) {
+            key = byValue.get(normalized);
+            if (key == null) {
+                key = new MethodKey(normalized, byId.size());
+                byId.add(key);
+                byValue.put(normalized, key);
+            }
+            return key;
+        }
+    }
+
+    /** Chiave con id intero {@code id}. */
+    public synchronized MethodKey byId(int id) {
+        return byId.get(id);
+    }
+
+    /** Numero di chiavi assegnate (gli id validi sono {@code 0..size()-1}). */
+    public synchronized int size() {
+        return byId.size();
+    }
+}
@@ -0,0 +1,218 @@
+package dataset.creation.features;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.expr.BinaryExpr;
+import com.github.javaparser.ast.expr.ConditionalExpr;
+import com.github.javaparser.ast.expr.LambdaExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.expr.SwitchExpr;
+import com.github.javaparser.ast.stmt.BreakStmt;
+import com.github.javaparser.ast.stmt.CatchClause;
+import com.github.javaparser.ast.stmt.ContinueStmt;
+import com.github.javaparser.ast.stmt.DoStmt;
+import com.github.javaparser.ast.stmt.ForEachStmt;
+import com.github.javaparser.ast.stmt.ForStmt;
+import com.github.javaparser.ast.stmt.IfStmt;
+import com.github.javaparser.ast.stmt.LocalClassDeclarationStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.ast.stmt.SwitchEntry;
+import com.github.javaparser.ast.stmt.SwitchStmt;
+import com.github.javaparser.ast.stmt.TryStmt;
+import com.github.javaparser.ast.stmt.WhileStmt;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+
+/**
+ * Calcola in una sola visita dell'AST di un metodo:
+ * <ul>
+ *   <li>NestingDepth: massimo annidamento di if/cicli/switch/catch/ternari;</li>
+ *   <li>DecisionPoints: if, else-if, cicli, case non di default, catch, ternari;</li>
+ *   <li>Cyclomatic: decision point + operatori {@code &&}/{@code ||} + 1;</li>
+ *   <li>Cognitive: regole di SonarSource, con l'incremento di annidamento
+ *       per le strutture annidate e +1 per ogni sequenza di operatori logici.</li>
+ * </ul>
+ * L'argomento della visita è il livello di annidamento corrente. Le strutture
+ * di controllo visitano i propri figli una volta sola, passando il livello
+ * giusto, quindi il costo è lineare nel numero di nodi.
+ * Non conteggiata la ricorsione (richiederebbe la risoluzione dei simboli).
+ */
+final class MethodMetricsVisitor extends VoidVisitorAdapter<Integer> {
+
+    private int maxDepth;
+    private int decisionPoints;
+    private int logicalOperators;
+    private int cognitive;
+
+    /** Metriche del nodo indicato (di solito una {@code MethodDeclaration}). */
+    static MethodMetricsVisitor of(Node method) {
+        MethodMetricsVisitor v = new MethodMetricsVisitor();
+        method.accept(v, 0);
+        return v;
+    }
+
+    int nestingDepth()         { return maxDepth; }
+    int decisionPoints()       { return decisionPoints; }
+    int cyclomaticComplexity() { return decisionPoints + logicalOperators + 1; }
+    int cognitiveComplexity()  { return cognitive; }
+
+    /** Struttura che incrementa di 1 + annidamento e apre un livello. */
+    private void structure(int nesting) {
+        decisionPoints++;
+        cognitive += 1 + nesting;
+        maxDepth = Math.max(maxDepth, nesting + 1);
+    }
+
+    /* ---------------- condizioni --------------------------------------- */
+
+    @Override
+    public void visit(IfStmt n, Integer nesting) {
+        structure(nesting);
+        n.getCondition().accept(this, nesting);
+        n.getThenStmt().accept(this, nesting + 1);
+
+        // else-if e else: +1 senza incremento di annidamento, stesso livello dell'if
+        Statement next = n.getElseStmt().orElse(null);
+        while (next instanceof IfStmt) {
+            IfStmt elseIf = (IfStmt) next;
+            decisionPoints++;
+            cognitive++;
+            elseIf.getCondition().accept(this, nesting);
+            elseIf.getThenStmt().accept(this, nesting + 1);
+            next = elseIf.getElseStmt().orElse(null);
+        }
+        if (next != null) {
+            cognitive++;
+            next.accept(this, nesting + 1);
+        }
+    }
+
+    @Override
+    public void visit(ConditionalExpr n, Integer nesting) {
+        structure(nesting);
+        n.getCondition().accept(this, nesting);
+        n.getThenExpr().accept(this, nesting + 1);
+        n.getElseExpr().accept(this, nesting + 1);
+    }
+
+    @Override
+    public void visit(SwitchStmt n, Integer nesting) {
+        visitSwitch(n.getSelector(), n.getEntries(), nesting);
+    }
+
+    @Override
+    public void visit(SwitchExpr n, Integer nesting) {
+        visitSwitch(n.getSelector(), n.getEntries(), nesting);
+    }
+
+    private void visitSwitch(Node selector, NodeList<SwitchEntry> entries, int nesting) {
+        cognitive += 1 + nesting;
+        maxDepth = Math.max(maxDepth, nesting + 1);
+        selector.accept(this, nesting);
+        for (SwitchEntry entry : entries) {
+            if (!entry.getLabels().isEmpty()) {
+                decisionPoints++;
+            }
+            entry.getLabels().forEach(l -> l.accept(this, nesting));
+            entry.getStatements().forEach(s -> s.accept(this, nesting + 1));
+        }
+    }
+
+    @Override
+    public void visit(BinaryExpr n, Integer nesting) {
+        BinaryExpr.Operator op = n.getOperator();
+        if (op == BinaryExpr.Operator.AND || op == BinaryExpr.Operator.OR) {
+            logicalOperators++;
+            // +1 solo all'inizio di una sequenza dello stesso operatore
+            boolean continuesSequence = n.getParentNode()
+                    .filter(p -> p instanceof BinaryExpr && ((BinaryExpr) p).getOperator() == op)
+                    .isPresent();
+            if (!continuesSequence) {
+                cognitive++;
+            }
+        }
+        n.getLeft().accept(this, nesting);
+        n.getRight().accept(this, nesting);
+    }
+
+    /* ---------------- cicli -------------------------------------------- */
+
+    @Override
+    public void visit(ForStmt n, Integer nesting) {
+        structure(nesting);
+        n.getInitialization().forEach(e -> e.accept(this, nesting));
+        n.getCompare().ifPresent(e -> e.accept(this, nesting));
+        n.getUpdate().forEach(e -> e.accept(this, nesting));
+        n.getBody().accept(this, nesting + 1);
+    }
+
+    @Override
+    public void visit(ForEachStmt n, Integer nesting) {
+        structure(nesting);
+        n.getVariable().accept(this, nesting);
+        n.getIterable().accept(this, nesting);
+        n.getBody().accept(this, nesting + 1);
+    }
+
+    @Override
+    public void visit(WhileStmt n, Integer nesting) {
+        structure(nesting);
+        n.getCondition().accept(this, nesting);
+        n.getBody().accept(this, nesting + 1);
+    }
+
+    @Override
+    public void visit(DoStmt n, Integer nesting) {
+        structure(nesting);
+        n.getBody().accept(this, nesting + 1);
+        n.getCondition().accept(this, nesting);
+    }
+
+    /* ---------------- eccezioni e salti -------------------------------- */
+
+    @Override
+    public void visit(TryStmt n, Integer nesting) {
+        n.getResources().forEach(r -> r.accept(this, nesting));
+        n.getTryBlock().accept(this, nesting);
+        for (CatchClause c : n.getCatchClauses()) {
+            structure(nesting);
+            c.getParameter().accept(this, nesting);
+            c.getBody().accept(this, nesting + 1);
+        }
+        n.getFinallyBlock().ifPresent(f -> f.accept(this, nesting));
+    }
+
+    @Override
+    public void visit(BreakStmt n, Integer nesting) {
+        if (n.getLabel().isPresent()) cognitive++;
+    }
+
+    @Override
+    public void visit(ContinueStmt n, Integer nesting) {
+        if (n.getLabel().isPresent()) cognitive++;
+    }
+
+    /* ---------------- codice annidato: solo livello -------------------- */
+
+    @Override
+    public void visit(LambdaExpr n, Integer nesting) {
+        n.getParameters().forEach(p -> p.accept(this, nesting));
+        n.getBody().accept(this, nesting + 1);
+    }
+
+    @Override
+    public void visit(LocalClassDeclarationStmt n, Integer nesting) {
+        n.getClassDeclaration().getMembers().forEach(m -> m.accept(this, nesting + 1));
+    }
+
+    @Override
+    public void visit(ObjectCreationExpr n, Integer nesting) {
+        n.getScope().ifPresent(s -> s.accept(this, nesting));
+        n.getArguments().forEach(a -> a.accept(this, nesting));
+        n.getAnonymousClassBody().ifPresent(body -> {
+            for (BodyDeclaration<?> m : body) {
+                m.accept(this, nesting + 1);
+            }
+        });
+    }
+}
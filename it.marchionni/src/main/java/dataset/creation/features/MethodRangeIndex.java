@@ -0,0 +1,61 @@
+package dataset.creation.features;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Indice di intervalli di righe (tipicamente i range dei metodi di un file)
+ * ordinato per riga di inizio, con il massimo prefisso delle righe di fine.
+ *
+ * Una query su [from, to] fa una ricerca binaria per escludere gli intervalli
+ * che iniziano dopo {@code to} e risale all'indietro finché il massimo prefisso
+ * può ancora raggiungere {@code from}: con metodi non annidati il costo è
+ * proporzionale ai soli intervalli sovrapposti.
+ */
+final class MethodRangeIndex<T> {
+
+    private final List<T> items;
+    private final int[] begins;
+    private final int[] ends;
+    private final int[] prefixMaxEnd;
+
+    MethodRangeIndex(List<T> source, ToIntFunction<T> beginOf, ToIntFunction<T> endOf) {
+        this.items = new ArrayList<>(source);
+        this.items.sort(Comparator.comparingInt(beginOf));
+
+        int n = items.size();
+        this.begins       = new int[n];
+        this.ends         = new int[n];
+        this.prefixMaxEnd = new int[n];
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            begins[i] = beginOf.applyAsInt(items.get(i));
+            ends[i]   = endOf.applyAsInt(items.get(i));
+            max = Math.max(max, ends[i]);
+            prefixMaxEnd[i] = max;
+        }
+    }
+
+    /** Invoca {@code action} su ogni intervallo con begin ≤ {@code to} e end ≥ {@code from}. */
+    void forEachOverlapping(int from, int to, Consumer<T> action) {
+        for (int i = upperBound(to) - 1; i >= 0 && prefixMaxEnd[i] >= from; i--) {
+            if (ends[i] >= from) {
+                action.accept(items.get(i));
+            }
+        }
+    }
+
+    /** Numero di intervalli con begin ≤ {@code value}. */
+    private int upperBound(int value) {
+        int lo = 0;
+        int hi = begins.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (begins[mid] <= value) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+}
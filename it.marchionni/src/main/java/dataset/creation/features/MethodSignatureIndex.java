@@ -0,0 +1,71 @@
+package dataset.creation.features;
+
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indice dei metodi di una {@link CompilationUnit}, costruito una sola volta
+ * per versione del file: firma (come da {@code getDeclarationAsString(false, false, false)})
+ * → dichiarazione e range. A parità di firma vale la prima occorrenza nel file,
+ * come nella vecchia ricerca lineare.
+ */
+final class MethodSignatureIndex {
+
+    /** Un metodo del file con la sua firma già calcolata. */
+    static final class Entry {
+        final String signature;
+        final MethodDeclaration declaration;
+        final Range range;
+        private BodyFingerprint bodyFingerprint;
+
+        private Entry(String signature, MethodDeclaration declaration) {
+            this.signature   = signature;
+            this.declaration = declaration;
+            this.range       = declaration.getRange().orElse(null);
+        }
+
+        /** Impronta del corpo, calcolata alla prima richiesta e poi riusata. */
+        BodyFingerprint bodyFingerprint() {
+            if (bodyFingerprint == null) {
+                bodyFingerprint = BodyFingerprint.of(declaration);
+            }
+            return bodyFingerprint;
+        }
+    }
+
+    private final List<Entry> entries;
+    private final Map<String, Entry> bySignature;
+
+    private MethodSignatureIndex(List<Entry> entries) {
+        this.entries     = Collections.unmodifiableList(entries);
+        this.bySignature = new HashMap<>(entries.size() * 2);
+        for (Entry e : entries) {
+            bySignature.putIfAbsent(e.signature, e);
+        }
+    }
+
+    static MethodSignatureIndex of(CompilationUnit cu) {
+        List<Entry> list = new ArrayList<>();
+        for (MethodDeclaration md : cu.findAll(MethodDeclaration.class)) {
+            list.add(new Entry(md.getDeclarationAsString(false, false, false), md));
+        }
+        return new MethodSignatureIndex(list);
+    }
+
+    /** Metodi in ordine di apparizione nel file. */
+    List<Entry> entries() {
+        return entries;
+    }
+
+    /** Primo metodo con la firma data, o {@code null}. */
+    Entry find(String signature) {
+        return bySignature.get(signature);
+    }
+}
@@ -0,0 +1,114 @@
+package dataset.creation.features;
+
+import com.github.javaparser.ast.CompilationUnit;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Cache LRU limitata dei blob .java già letti e parsati, indicizzata per
+ * {@link ObjectId}: la post-image di un commit è di solito la pre-image del
+ * commit successivo che tocca lo stesso file, e così viene parsata una volta
+ * per versione invece che una volta per commit.
+ *
+ * Ogni voce contiene AST, righe del file ({@link SourceLines}, sui byte del
+ * blob) e indice delle firme; sono usati in
+ * sola lettura, quindi la stessa voce può servire più worker. Contatori di
+ * hit/miss/eviction per il log di fine run. Thread-safe.
+ */
+final class ParsedBlobCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParsedBlobCache.class);
+
+    /** Numero massimo di blob parsati tenuti in memoria. */
+    static final int DEFAULT_MAX_ENTRIES = Integer.getInteger("dataset.astCache.maxEntries", 256);
+
+    /** Blob letto e parsato una volta: AST, righe e firme dei metodi. */
+    static final class ParsedBlob {
+        static final ParsedBlob EMPTY = new ParsedBlob(new CompilationUnit(), SourceLines.EMPTY);
+
+        final CompilationUnit cu;
+        final SourceLines lines;
+        final MethodSignatureIndex methods;
+
+        private ParsedBlob(CompilationUnit cu, SourceLines lines) {
+            this.cu      = cu;
+            this.lines   = lines;
+            this.methods = MethodSignatureIndex.of(cu);
+        }
+    }
+
+    private final int maxEntries;
+    private final LinkedHashMap<ObjectId, ParsedBlob> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    ParsedBlobCache(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.entries    = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ObjectId, ParsedBlob> e) {
+                if (size() > ParsedBlobCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Blob {@code id} parsato; {@link ParsedBlob#EMPTY} per l'id nullo (file
+     * aggiunto/eliminato) e per i file vuoti. Il parsing avviene fuori dal
+     * lock: due worker che chiedono insieme lo stesso blob mancante lo
+     * parsano entrambi, ma il risultato è lo stesso.
+     */
+    ParsedBlob get(ObjectReader reader, ObjectId id) throws IOException {
+        if (id.equals(ObjectId.zeroId())) {
+            return ParsedBlob.EMPTY;
+        }
+        synchronized (this) {
+            ParsedBlob cached = entries.get(id);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+
+        byte[] raw = reader.open(id).getBytes();
+        ParsedBlob parsed = raw.length == 0 ? ParsedBlob.EMPTY
+                : new ParsedBlob(parseSafely(new String(raw, UTF_8)), new SourceLines(raw));
+
+        synchronized (this) {
+            entries.put(id.copy(), parsed);
+        }
+        return parsed;
+    }
+
+    private static CompilationUnit parseSafely(String content) {
+        try {
+            return ParserProvider.parse(content);
+        } catch (Exception e) {
+            logger.warn("Error parsing Java file, returning empty compilation unit");
+            return new CompilationUnit();
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        long total = hits + misses;
+        return String.format("ParsedBlobCache[size=%d, hit=%d, miss=%d, evicted=%d, hitRate=%.1f%%]",
+                entries.size(), hits, misses, evictions,
+                total == 0 ? 0.0 : 100.0 * hits / total);
+    }
+}
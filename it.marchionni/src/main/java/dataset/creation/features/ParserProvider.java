@@ -0,0 +1,57 @@
+package dataset.creation.features;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+
+/**
+ * Fornisce a ogni thread il proprio {@link JavaParser}, configurato una
+ * volta e riusato per tutti i file che il thread analizza. Nessuno stato
+ * condiviso tra thread, al contrario della configurazione globale di
+ * {@code StaticJavaParser}, che inoltre crea un parser nuovo a ogni chiamata.
+ *
+ * Configurazione: livello di linguaggio da {@code -Ddataset.parser.languageLevel}
+ * (default JAVA_11, lo stesso di {@code StaticJavaParser}) e nessuna
+ * attribuzione dei commenti ai nodi: né le metriche né il confronto dei
+ * corpi dei metodi ne hanno bisogno, e i range dei nodi non cambiano.
+ */
+public final class ParserProvider {
+
+    public static final ParserConfiguration.LanguageLevel LANGUAGE_LEVEL =
+            ParserConfiguration.LanguageLevel.valueOf(
+                    System.getProperty("dataset.parser.languageLevel", "JAVA_11"));
+
+    private static final ThreadLocal<JavaParser> PARSER = ThreadLocal.withInitial(() ->
+            new JavaParser(new ParserConfiguration()
+                    .setLanguageLevel(LANGUAGE_LEVEL)
+                    .setAttributeComments(false)));
+
+    private ParserProvider() { }
+
+    /** Parser del thread corrente. */
+    public static JavaParser parser() {
+        return PARSER.get();
+    }
+
+    /** Come {@code StaticJavaParser.parse(String)}: eccezione se il sorgente non è valido. */
+    public static CompilationUnit parse(String source) {
+        return unwrap(parser().parse(source));
+    }
+
+    /** Come {@code StaticJavaParser.parse(File)}. */
+    public static CompilationUnit parse(File file) throws FileNotFoundException {
+        return unwrap(parser().parse(file));
+    }
+
+    private static CompilationUnit unwrap(ParseResult<CompilationUnit> result) {
+        if (result.isSuccessful() && result.getResult().isPresent()) {
+            return result.getResult().get();
+        }
+        throw new ParseProblemException(result.getProblems());
+    }
+}
@@ -0,0 +1,26 @@
+package dataset.creation.features;
+
+import org.eclipse.jgit.diff.RawText;
+
+/**
+ * Righe di un sorgente come {@link RawText} di JGit: il buffer di byte del
+ * blob più la mappa degli offset di inizio riga, con la stessa numerazione
+ * delle {@code Edit} prodotte dal diff. L'analisi delle righe avviene
+ * direttamente sui byte, senza decodificare né dividere il file in stringhe.
+ */
+final class SourceLines extends RawText {
+
+    static final SourceLines EMPTY = new SourceLines(new byte[0]);
+
+    SourceLines(byte[] content) {
+        super(content);
+    }
+
+    /**
+     * Offset nel buffer ({@link #getRawContent()}) del primo byte della riga
+     * {@code line} (da 0); per {@code line == size()} la fine del contenuto.
+     */
+    int lineStart(int line) {
+        return lines.get(line + 1);
+    }
+}
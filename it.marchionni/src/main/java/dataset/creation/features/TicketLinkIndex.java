@@ -0,0 +1,175 @@
+package dataset.creation.features;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Indice persistente ticket → commit che lo citano nel messaggio, costruito
+ * una volta per repository e aggiornato solo con i commit nuovi.
+ *
+ * Per ogni ticket l'indice tiene sha → numero di menzioni nel messaggio,
+ * così {@link #bugFixMentions} restituisce lo stesso numero di occorrenze
+ * che produceva la scansione con la regex sul messaggio. Rileggere un commit
+ * già indicizzato ne sovrascrive il conteggio, senza raddoppiarlo.
+ * Le "teste" già indicizzate (tag + HEAD) fanno da watermark: all'aggiornamento
+ * si leggono solo i messaggi dei commit non raggiungibili da esse; se una
+ * testa non esiste più (force-push, branch cancellato) la storia già vista
+ * viene riletta.
+ */
+public class TicketLinkIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(TicketLinkIndex.class);
+
+    /** Versione del formato su disco: un indice di versione diversa si ricostruisce. */
+    static final int FORMAT_VERSION = 2;
+
+    private final Path file;
+    private final Pattern ticketPattern;
+    private final Map<String, Map<String, Integer>> links = new HashMap<>();
+    private final List<String> heads = new ArrayList<>();
+
+    private TicketLinkIndex(Path file, String projectKey) {
+        this.file          = file;
+        this.ticketPattern = Pattern.compile("(?i)" + Pattern.quote(projectKey) + "-\\d+");
+    }
+
+    /** Carica l'indice da {@code file}; se manca o è illeggibile parte vuoto. */
+    public static TicketLinkIndex load(Path file, String projectKey) {
+        TicketLinkIndex index = new TicketLinkIndex(file, projectKey);
+        if (!Files.exists(file)) {
+            return index;
+        }
+        try (Reader r = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             Jsonb jsonb = JsonbBuilder.create()) {
+            Snapshot snap = jsonb.fromJson(r, Snapshot.class);
+            if (snap == null || snap.getFormatVersion() != FORMAT_VERSION) {
+                logger.info("Indice ticket→commit {} in un formato precedente, lo ricostruisco", file);
+                return index;
+            }
+            if (snap.getLinks() != null && snap.getHeads() != null) {
+                index.links.putAll(snap.getLinks());
+                index.heads.addAll(snap.getHeads());
+            }
+            logger.info("🟡 Indice ticket→commit caricato da {} ({} ticket)", file, index.links.size());
+        } catch (Exception e) {
+            logger.warn("Indice ticket→commit {} non leggibile, riparto da vuoto", file, e);
+            index.links.clear();
+            index.heads.clear();
+        }
+        return index;
+    }
+
+    /**
+     * Indicizza i commit raggiungibili da {@code tips} ma non dalle teste
+     * già note. Le teste non più presenti nel repository vengono ignorate.
+     *
+     * @return numero di messaggi di commit letti
+     */
+    public int update(Repository repository, Collection<? extends AnyObjectId> tips) throws IOException {
+        int scanned = 0;
+        try (RevWalk rw = new RevWalk(repository)) {
+            for (AnyObjectId tip : tips) {
+                rw.markStart(rw.parseCommit(tip));
+            }
+            for (String head : heads) {
+                try {
+                    rw.markUninteresting(rw.parseCommit(ObjectId.fromString(head)));
+                } catch (IOException | IllegalArgumentException e) {
+                    logger.debug("Testa {} non più presente, ignorata", head);
+                }
+            }
+
+            Map<String, Integer> mentions = new HashMap<>();
+            for (RevCommit c : rw) {
+                Matcher m = ticketPattern.matcher(c.getFullMessage());
+                while (m.find()) {
+                    mentions.merge(m.group().toUpperCase(Locale.ROOT), 1, Integer::sum);
+                }
+                String sha = c.name();
+                mentions.forEach((ticket, n) ->
+                        links.computeIfAbsent(ticket, k -> new HashMap<>()).put(sha, n));
+                mentions.clear();
+                scanned++;
+            }
+        }
+
+        heads.clear();
+        for (AnyObjectId tip : tips) {
+            heads.add(tip.name());
+        }
+        logger.info("Indice ticket→commit aggiornato: {} messaggi letti, {} ticket citati",
+                scanned, links.size());
+        return scanned;
+    }
+
+    /**
+     * Per ogni commit che cita almeno un ticket di {@code bugKeys} (chiavi in
+     * maiuscolo), il numero di menzioni di ticket di bug nel suo messaggio.
+     */
+    public Map<ObjectId, Integer> bugFixMentions(Set<String> bugKeys) {
+        Map<ObjectId, Integer> out = new HashMap<>();
+        for (String key : bugKeys) {
+            links.getOrDefault(key, Map.of()).forEach((sha, n) ->
+                    out.merge(ObjectId.fromString(sha), n, Integer::sum));
+        }
+        return out;
+    }
+
+    /** Scrive l'indice su disco. */
+    public void save() throws IOException {
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+             Jsonb jsonb = JsonbBuilder.create()) {
+            jsonb.toJson(new Snapshot(heads, links), w);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Errore salvando l'indice ticket→commit in " + file, e);
+        }
+        logger.info("✅ Indice ticket→commit salvato in {}", file);
+    }
+
+    /* ---------------- formato JSON-B su disco -------------------------- */
+
+    public static class Snapshot {
+        private int formatVersion;
+        private List<String> heads = new ArrayList<>();
+        private Map<String, Map<String, Integer>> links = new HashMap<>();
+
+        public Snapshot() { /* JSON-B */ }
+        Snapshot(List<String> heads, Map<String, Map<String, Integer>> links) {
+            this.formatVersion = FORMAT_VERSION;
+            this.heads = heads;
+            this.links = links;
+        }
+
+        public int getFormatVersion() { return formatVersion; }
+        public void setFormatVersion(int formatVersion) { this.formatVersion = formatVersion; }
+        public List<String> getHeads() { return heads; }
+        public void setHeads(List<String> heads) { this.heads = heads; }
+        public Map<String, Map<String, Integer>> getLinks() { return links; }
+        public void setLinks(Map<String, Map<String, Integer>> links) { this.links = links; }
+    }
+}
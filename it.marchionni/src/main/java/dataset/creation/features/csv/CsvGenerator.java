@@ -10,10 +10,10 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 import dataset.creation.features.metrics.AddDeleteMetrics;
 import dataset.creation.features.metrics.ComplexityMetrics;
+import dataset.creation.features.metrics.ControlFlowChangeMetrics;
 import dataset.creation.features.metrics.ElseMetrics;
 import dataset.creation.features.metrics.MethodMetrics;
 import dataset.creation.features.metrics.StructuralChangeMetrics;
@@ -22,7 +22,8 @@ import dataset.creation.features.metrics.StructuralChangeMetrics;
  * Genera CSV includendo:
  *  - static metrics (LOC, complexity, code smells, ecc.)
  *  - churn metrics (total, avg, max)
- *  - change details (elseAdded, elseDeleted, condChanges)
+ *  - change details (elseAdded, elseDeleted, condChanges, loopsAdded,
+ *    tryCatchAdded, returnsChanged)
  *  - history details (n° commit, n° autori)
  *  - label buggy (normalizzato per whitespace)
  */
@@ -37,11 +38,6 @@ public class CsvGenerator {
         this.append = append;
     }
 
-    /** Rimuove tutti gli spazi per creare ID uniformi */
-    private static String normalizeId(String rawId) {
-        return rawId.replaceAll("\\s+", "");
-    }
-
     public void generateCsv(
             Map<File, Map<String, MethodFeatures>> featuresPerFile,
             BuggyInfo info,
@@ -51,11 +47,6 @@ public class CsvGenerator {
         CSVFormat fmt = getCsvFormat();
 
         try (CSVPrinter csv = new CSVPrinter(new FileWriter(outputCsv, append), fmt)) {
-            // Prepara insieme dei buggy-id
-            Set<String> normalizedBuggy = info.getBuggyMethods().stream()
-                    .map(CsvGenerator::normalizeId)
-                    .collect(Collectors.toSet());
-
             // Solo due livelli di annidamento e poi chiamo il helper
             for (Map.Entry<File, Map<String, MethodFeatures>> fe : featuresPerFile.entrySet()) {
                 String fileName = fe.getKey().getName();
@@ -63,10 +54,10 @@ public class CsvGenerator {
                     String signature = me.getKey();
                     MethodFeatures f = me.getValue();
 
-                    String rawId = fileName + "#" + signature;
-                    String normId = normalizeId(rawId);
-                    MethodMetrics mm = info.getMetricsFor(normId);
-                    boolean isBuggy = normalizedBuggy.contains(normId);
+                    // lookup per id testuale: il dizionario delle chiavi
+                    // appartiene al calcolo dei buggy, già concluso
+                    MethodMetrics mm = info.getMetricsFor(fileName, signature);
+                    boolean isBuggy = info.isBuggy(fileName, signature);
 
                     // delego tutta la formattazione/stampa a un helper
                     printCsvLine(csv, version, fileName, signature, f, mm, isBuggy);
@@ -84,6 +75,7 @@ public class CsvGenerator {
                 "CodeSmells","NestingDepth","ParameterCount",
                 "ChurnTotal","AvgAdded","MaxAdded","AvgDeleted","MaxDeleted",
                 "AvgChurn","MaxChurn","ElseAdded","ElseDeleted","CondChanges",
+                "LoopsAdded","TryCatchAdded","ReturnsChanged",
                 "DecisionPoints","Histories","Authors","Buggy"
         };
         CSVFormat.Builder builder = CSVFormat.DEFAULT.builder();
@@ -116,6 +108,9 @@ public class CsvGenerator {
         ComplexityMetrics comp = (mm != null)
                 ? mm.getComplexity()
                 : new ComplexityMetrics(0, 0);
+        ControlFlowChangeMetrics controlFlow = (mm != null)
+                ? mm.getControlFlow()
+                : new ControlFlowChangeMetrics(0, 0, 0);
 
         csv.printRecord(
                 version,
@@ -140,6 +135,9 @@ public class CsvGenerator {
                 elseM.getElseAdded(),
                 elseM.getElseDeleted(),
                 structural.getCondChanges(),
+                controlFlow.getLoopsAdded(),
+                controlFlow.getTryCatchAdded(),
+                controlFlow.getReturnsChanged(),
 
                 f.getDecisionPoints(),
                 comp.getHistoryCount(),
@@ -0,0 +1,40 @@
+package dataset.creation.features.metrics;
+
+import jakarta.json.bind.annotation.JsonbCreator;
+import jakarta.json.bind.annotation.JsonbProperty;
+
+// 5. Metriche su cicli, try/catch e return toccati dalle modifiche
+public class ControlFlowChangeMetrics {
+    private int loopsAdded;
+    private int tryCatchAdded;
+    private int returnsChanged;
+
+    @JsonbCreator
+    public ControlFlowChangeMetrics(
+            @JsonbProperty("loopsAdded")     int loopsAdded,
+            @JsonbProperty("tryCatchAdded")  int tryCatchAdded,
+            @JsonbProperty("returnsChanged") int returnsChanged
+    ) {
+        this.loopsAdded     = loopsAdded;
+        this.tryCatchAdded  = tryCatchAdded;
+        this.returnsChanged = returnsChanged;
+    }
+    public int getLoopsAdded() {
+        return loopsAdded;
+    }
+    public int getTryCatchAdded() {
+        return tryCatchAdded;
+    }
+    public int getReturnsChanged() {
+        return returnsChanged;
+    }
+    public void setLoopsAdded(int loopsAdded) {
+        this.loopsAdded = loopsAdded;
+    }
+    public void setTryCatchAdded(int tryCatchAdded) {
+        this.tryCatchAdded = tryCatchAdded;
+    }
+    public void setReturnsChanged(int returnsChanged) {
+        this.returnsChanged = returnsChanged;
+    }
+}
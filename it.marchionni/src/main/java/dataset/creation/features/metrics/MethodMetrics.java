@@ -8,18 +8,21 @@ public class MethodMetrics {
     private ComplexityMetrics complexity;
     private ElseMetrics elseMetrics;
     private AddDeleteMetrics addDelete;
+    private ControlFlowChangeMetrics controlFlow;
 
     @JsonbCreator
     public MethodMetrics(
             @JsonbProperty("structural") StructuralChangeMetrics structural,
             @JsonbProperty("complexity")  ComplexityMetrics complexity,
             @JsonbProperty("elseMetrics") ElseMetrics elseMetrics,
-            @JsonbProperty("addDelete")   AddDeleteMetrics addDelete
+            @JsonbProperty("addDelete")   AddDeleteMetrics addDelete,
+            @JsonbProperty("controlFlow") ControlFlowChangeMetrics controlFlow
     ) {
         this.structural  = structural;
         this.complexity  = complexity;
         this.elseMetrics = elseMetrics;
         this.addDelete   = addDelete;
+        this.controlFlow = controlFlow;
     }
     public MethodMetrics() {
         //empty
@@ -29,4 +32,5 @@ public class MethodMetrics {
     public ComplexityMetrics getComplexity() { return complexity; }
     public ElseMetrics getElseMetrics() { return elseMetrics; }
     public AddDeleteMetrics getAddDelete() { return addDelete; }
+    public ControlFlowChangeMetrics getControlFlow() { return controlFlow; }
 }
@@ -2,54 +2,101 @@ package dataset.creation.fetcher;
 
 import dataset.creation.exceptions.GitInjectionException;
 import dataset.creation.fetcher.model.Commit;
+import dataset.creation.fetcher.model.CommitStore;
 import dataset.creation.fetcher.model.Release;
+import dataset.creation.utils.PartialClone;
+import dataset.creation.utils.RepositoryService;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.ListBranchCommand;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.FilterSpec;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.time.Instant;
-import java.time.LocalDate;
-import java.time.ZoneOffset;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
- * Clona (o apre) il repo Git, deduplica i commit di tutti i branch
+ * Clona (o apre) il repo Git, anche in modo parziale (vedi
+ * {@link PartialClone}), deduplica i commit di tutti i branch
  * e li assegna alla release successiva in ordine cronologico.
  */
-public class GitInjection {
+public class GitInjection implements AutoCloseable {
 
     private static final Logger log = LoggerFactory.getLogger(GitInjection.class);
 
     public static final String LOCAL_DATE_FORMAT = "yyyy-MM-dd";
 
+    private final RepositoryService service;
     private final Git         git;
     private final Repository  repo;
     private final List<Release> releases;
-    private       List<Commit> commits;
+    private       CommitStore commits;
 
     /* --------------------------------------------------------------- */
     public GitInjection(String remoteUrl, File workDir, List<Release> releases)
             throws GitInjectionException {
+        this(remoteUrl, workDir, releases, PartialClone.BLOB_LIMIT);
+    }
+
+    /**
+     * Come sopra, con la soglia dei blob per una clone nuova indicata
+     * esplicitamente invece che da {@code -Ddataset.clone.blobLimit}
+     * (negativa = clone completa). Una clone già presente mantiene il filtro
+     * con cui è stata creata.
+     */
+    public GitInjection(String remoteUrl, File workDir, List<Release> releases, long blobLimit)
+            throws GitInjectionException {
 
         this.releases = releases;
+        String filterLine = PartialClone.filter(blobLimit);
         try {
+            // clone/fetch con un repository proprio, poi l'accesso condiviso della pipeline
             if (workDir.exists()) {
                 log.info("→ repository locale già presente, eseguo fetch…");
-                git = Git.open(workDir);
-                git.fetch().setRemoveDeletedRefs(true).call();
+                try (Git setup = Git.open(workDir)) {
+                    // su una clone parziale la fetch mantiene lo stesso filtro sui blob
+                    FilterSpec filter = PartialClone.storedFilter(setup.getRepository());
+                    setup.fetch()
+                            .setRemoveDeletedRefs(true)
+                            .setTransportConfigCallback(t -> t.setFilterSpec(filter))
+                            .call();
+                }
+            } else if (filterLine != null) {
+                FilterSpec filter = FilterSpec.fromFilterLine(filterLine);
+                log.info("→ clono {} in {} (parziale, {})", remoteUrl, workDir.getPath(),
+                        filterLine);
+                try (Git setup = Git.cloneRepository()
+                        .setURI(remoteUrl)
+                        .setDirectory(workDir)
+                        .setNoCheckout(true)
+                        .setTransportConfigCallback(t -> t.setFilterSpec(filter))
+                        .call()) {
+                    PartialClone.markPromisor(setup.getRepository(), Constants.DEFAULT_REMOTE_NAME,
+                            filterLine);
+                    checkoutJavaSources(setup);
+                }
             } else {
                 log.info("→ clono {} in {}", remoteUrl, workDir.getPath());
-                git = Git.cloneRepository()
+                Git.cloneRepository()
                         .setURI(remoteUrl)
                         .setDirectory(workDir)
-                        .call();
+                        .call()
+                        .close();
             }
-            repo = git.getRepository();
+            service = RepositoryService.open(workDir);
+            repo    = service.repository();
+            git     = Git.wrap(repo);
 
         } catch (Exception e) {
             throw new GitInjectionException(
@@ -57,11 +104,40 @@ public class GitInjection {
         }
     }
 
+    /**
+     * Working tree di una clone parziale: solo i .java della HEAD, scaricati
+     * in un'unica fetch. Gli altri file restano fuori (come un checkout sparso).
+     */
+    private static void checkoutJavaSources(Git git) throws Exception {
+        Repository r = git.getRepository();
+        ObjectId head = r.resolve(Constants.HEAD + "^{tree}");
+        if (head == null) {
+            return;   // repository vuoto
+        }
+        List<String> paths = new ArrayList<>();
+        List<ObjectId> blobs = new ArrayList<>();
+        try (TreeWalk tw = new TreeWalk(r)) {
+            tw.addTree(head);
+            tw.setRecursive(true);
+            tw.setFilter(PathSuffixFilter.create(".java"));
+            while (tw.next()) {
+                if (tw.getFileMode(0) == FileMode.GITLINK) continue;
+                paths.add(tw.getPathString());
+                blobs.add(tw.getObjectId(0));
+            }
+        }
+        PartialClone.fetchMissing(r, blobs);
+        if (!paths.isEmpty()) {
+            git.checkout().setStartPoint(Constants.HEAD).addPaths(paths).call();
+        }
+        log.info("→ working tree parziale: {} file .java", paths.size());
+    }
+
     /* --------------------------------------------------------------- */
     public void injectCommits() throws GitInjectionException {
         try {
-            List<RevCommit> revCommits = collectUniqueSortedCommits();
-            assignCommitsToReleases(revCommits);
+            CommitStore all = collectUniqueSortedCommits();
+            assignCommitsToReleases(all);
             finalizeReleasesAndLog();
         } catch (Exception e) {
             throw new GitInjectionException("Errore durante injectCommits()", e);
@@ -69,54 +145,59 @@ public class GitInjection {
     }
 
     /* --------------------------------------------------------------- */
-    private List<RevCommit> collectUniqueSortedCommits() throws GitInjectionException {
-        try {
-            List<RevCommit> result = new ArrayList<>();
+    private CommitStore collectUniqueSortedCommits() throws GitInjectionException {
+        // lo store copia solo id, tempo e autore e ordina dal più vecchio
+        CommitStore.Builder builder = CommitStore.builder(repo);
+        forEachCommit(builder::add);
+        CommitStore result = builder.build();
+
+        log.info("→ {} commit unici trovati", result.size());
+        return result;
+    }
 
+    /**
+     * Passa a {@code consumer} ogni commit raggiungibile da un branch locale
+     * o remoto, una sola volta e dal più recente, senza materializzare la
+     * lista. Un'unica {@link RevWalk} parte da tutte le teste: i commit
+     * condivisi tra branch vengono visitati una volta sola.
+     */
+    public void forEachCommit(Consumer<RevCommit> consumer) throws GitInjectionException {
+        try (RevWalk walk = new RevWalk(repo)) {
+            walk.sort(RevSort.COMMIT_TIME_DESC);
             for (Ref br : git.branchList()
                     .setListMode(ListBranchCommand.ListMode.ALL)
                     .call()) {
-
-                for (RevCommit rc : git.log().add(repo.resolve(br.getName())).call()) {
-                    if (!result.contains(rc)) {
-                        result.add(rc);
-                    }
+                ObjectId head = br.getObjectId();
+                if (head != null) {
+                    walk.markStart(walk.parseCommit(head));
                 }
             }
-            result.sort(Comparator.comparing(rc -> rc.getCommitterIdent()
-                    .getWhenAsInstant()));
-
-            log.info("→ {} commit unici trovati", result.size());
-            return result;
-
+            for (RevCommit rc : walk) {
+                consumer.accept(rc);
+            }
         } catch (Exception e) {
             throw new GitInjectionException("Errore durante la raccolta dei commit", e);
         }
     }
 
     /* --------------------------------------------------------------- */
-    private void assignCommitsToReleases(List<RevCommit> revCommits) {
+    private void assignCommitsToReleases(CommitStore all) {
 
-        commits = new ArrayList<>();
+        // ogni release copre i giorni dopo la precedente fino alla propria data
+        releases.sort(Comparator.comparing(Release::getReleaseDate));
+        int[] releaseOf = new ReleaseBoundaries(releases).indexOfAll(all);
 
-        for (RevCommit rc : revCommits) {
-            LocalDate commitDate = toUtcLocalDate(rc.getCommitterIdent()
-                    .getWhenAsInstant());
-            LocalDate lower = LocalDate.MIN;
-
-            for (Release rel : releases) {
-
-                LocalDate relDate = rel.getReleaseDate();
-                if (commitDate.isAfter(lower) && !commitDate.isAfter(relDate)) {
-
-                    /* rel implementa ReleaseInfo → nessuna dipendenza circolare */
-                    Commit c = new Commit(rc, rel);
+        // commit ordinati per data → release non decrescenti: quelli dopo
+        // l'ultima release sono in coda e vengono esclusi
+        int assigned = 0;
+        while (assigned < releaseOf.length && releaseOf[assigned] >= 0) {
+            assigned++;
+        }
+        commits = all.head(assigned);
 
-                    commits.add(c);
-                    rel.addCommit(c);
-                }
-                lower = relDate;
-            }
+        for (int i = 0; i < assigned; i++) {
+            /* rel implementa ReleaseInfo → nessuna dipendenza circolare */
+            releases.get(releaseOf[i]).addCommit(commits.get(i));
         }
     }
 
@@ -126,14 +207,15 @@ public class GitInjection {
         // rimuove release senza commit e assegna id progressivi
         releases.removeIf(r -> r.getCommitList().isEmpty());
         int id = 0;
+        int next = 0;
         for (Release r : releases) {
             r.setId(++id);
+            // i commit di una release sono contigui nello store
+            for (int k = 0; k < r.getCommitCount(); k++) {
+                commits.assign(next++, r);
+            }
         }
 
-        // ordina commit per data
-        commits.sort(Comparator.comparing(c ->
-                c.getRevCommit().getCommitterIdent().getWhenAsInstant()));
-
         // log riepilogativo
         log.info("→ assegnati {} commit a {} release", commits.size(), releases.size());
         for (Release r : releases) {
@@ -141,12 +223,35 @@ public class GitInjection {
         }
     }
 
-    /* --------------------------------------------------------------- */
-    private static LocalDate toUtcLocalDate(Instant inst) {
-        return inst.atZone(ZoneOffset.UTC).toLocalDate();
+    /* ---------------- getter pubblici ------------------------------ */
+    /** Commit assegnati a una release, dal più vecchio, in forma colonnare. */
+    public CommitStore   getCommitStore() { return commits; }
+    /** Vista come lista di {@link Commit} leggeri sullo store. */
+    public List<Commit>  getCommits()     { return new CommitListView(commits); }
+    public List<Release> getReleases()    { return releases; }
+
+    /** Rilascia il repository condiviso; i commit del {@link CommitStore} non si rileggono più. */
+    @Override
+    public void close() {
+        git.close();
+        service.close();
     }
 
-    /* ---------------- getter pubblici ------------------------------ */
-    public List<Commit>  getCommits()  { return commits; }
-    public List<Release> getReleases() { return releases; }
+    private static final class CommitListView extends AbstractList<Commit> implements RandomAccess {
+        private final CommitStore store;
+
+        CommitListView(CommitStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public Commit get(int index) {
+            return store.get(index);
+        }
+
+        @Override
+        public int size() {
+            return store.size();
+        }
+    }
 }
@@ -0,0 +1,69 @@
+package dataset.creation.fetcher;
+
+import dataset.creation.fetcher.model.CommitStore;
+import dataset.creation.fetcher.model.Release;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Date delle release come array ordinato di giorni epoch (UTC): la release
+ * di un commit è la prima con data maggiore o uguale al giorno del commit,
+ * trovata per ricerca binaria. Con date ripetute vince la prima release,
+ * come nel confronto release per release.
+ *
+ * Il giorno del commit si ricava da {@link RevCommit#getCommitTime()} (tempo
+ * del committer in secondi), senza costruire un {@code LocalDate} né un
+ * {@code PersonIdent} per commit.
+ */
+final class ReleaseBoundaries {
+
+    private static final long SECONDS_PER_DAY = 86_400L;
+
+    /** Sotto questa soglia di commit l'assegnazione in blocco resta sequenziale. */
+    static final int PARALLEL_THRESHOLD =
+            Integer.getInteger("dataset.releaseAssign.parallelThreshold", 10_000);
+
+    private final long[] days;
+
+    /** {@code releases} deve essere ordinata per data. */
+    ReleaseBoundaries(List<Release> releases) {
+        days = new long[releases.size()];
+        for (int i = 0; i < days.length; i++) {
+            days[i] = releases.get(i).getReleaseDate().toEpochDay();
+        }
+    }
+
+    /**
+     * Indice della release per un commit con il tempo indicato (secondi epoch,
+     * come {@link RevCommit#getCommitTime()}), -1 se è successivo all'ultima release.
+     */
+    int indexOfTime(long commitTime) {
+        return indexOf(Math.floorDiv(commitTime, SECONDS_PER_DAY));
+    }
+
+    int indexOf(long epochDay) {
+        int lo = 0;
+        int hi = days.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (days[mid] < epochDay) lo = mid + 1; else hi = mid;
+        }
+        return lo < days.length ? lo : -1;
+    }
+
+    /**
+     * Indice della release per ogni commit della lista, nello stesso ordine;
+     * calcolato in parallelo sopra {@link #PARALLEL_THRESHOLD} commit.
+     */
+    int[] indexOfAll(CommitStore commits) {
+        int[] out = new int[commits.size()];
+        IntStream range = IntStream.range(0, out.length);
+        if (out.length >= PARALLEL_THRESHOLD) {
+            range = range.parallel();
+        }
+        range.forEach(i -> out[i] = indexOfTime(commits.commitTime(i)));
+        return out;
+    }
+}
@@ -5,32 +5,33 @@ import org.eclipse.jgit.revwalk.RevCommit;
 
 import java.time.Instant;
 
+/**
+ * Vista leggera su un commit di {@link CommitStore}: solo store e indice.
+ * Hash, data, autore e release vengono dalle colonne dello store; messaggio
+ * e {@link RevCommit} sono riletti dal repository a ogni richiesta.
+ */
 public class Commit {
 
     @JsonbTransient
-    private final RevCommit revCommit;
+    private final CommitStore store;
+    private final int index;
 
-    /** riferimento leggero, non la classe completa → niente ciclo */
-    private final ReleaseInfo release;
-
-    private final String  hash;
-    private final String  message;
-    private final Instant date;
-
-    public Commit(RevCommit revCommit, ReleaseInfo release) {
-        this.revCommit = revCommit;
-        this.release   = release;
-        this.hash      = revCommit.getName();
-        this.message   = revCommit.getShortMessage();
-        this.date      = revCommit.getCommitterIdent().getWhenAsInstant();
+    Commit(CommitStore store, int index) {
+        this.store = store;
+        this.index = index;
     }
 
     /* ---- getter visibili in JSON ---- */
-    public String  getHash()        { return hash; }
-    public String  getMessage()     { return message; }
-    public Instant getDate()        { return date; }
-    public String  getReleaseTag()  { return release.getTag(); }   // solo il tag
+    public String  getHash()        { return store.objectId(index).name(); }
+    public String  getMessage()     { return getRevCommit().getShortMessage(); }
+    public Instant getDate()        { return Instant.ofEpochSecond(store.commitTime(index)); }
+    public String  getReleaseTag()  {                                  // solo il tag
+        ReleaseInfo release = store.release(index);
+        return release == null ? null : release.getTag();
+    }
     /* ---- getter interni ---- */
     @JsonbTransient
-    public RevCommit getRevCommit() { return revCommit; }
+    public String getAuthor()       { return store.author(index); }
+    @JsonbTransient
+    public RevCommit getRevCommit() { return store.revCommit(index); }
 }
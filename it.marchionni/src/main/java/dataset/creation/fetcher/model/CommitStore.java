@@ -0,0 +1,205 @@
+package dataset.creation.fetcher.model;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * Commit del repository in forma colonnare: array primitivi paralleli con
+ * SHA (due long e un int), istante del commit in secondi epoch, id
+ * dell'autore e id della release, ordinati dal più vecchio al più recente.
+ * Nessun {@link RevCommit} resta in memoria: {@link #revCommit(int)} lo
+ * rilegge dal repository solo quando serve.
+ *
+ * I {@link Commit} restituiti da {@link #get(int)} sono viste leggere
+ * (store + indice) su queste colonne.
+ */
+public final class CommitStore {
+
+    /** id di release dei commit non assegnati */
+    public static final int NO_RELEASE = 0;
+
+    private final Repository repo;
+    private final long[] shaHigh;
+    private final long[] shaMid;
+    private final int[]  shaLow;
+    private final int[]  commitTime;
+    private final int[]  authorId;
+    private final int[]  releaseId;
+    private final List<String> authors;
+    private final Map<Integer, ReleaseInfo> releases = new HashMap<>();
+
+    private CommitStore(Repository repo, long[] shaHigh, long[] shaMid, int[] shaLow,
+                        int[] commitTime, int[] authorId, List<String> authors) {
+        this.repo       = repo;
+        this.shaHigh    = shaHigh;
+        this.shaMid     = shaMid;
+        this.shaLow     = shaLow;
+        this.commitTime = commitTime;
+        this.authorId   = authorId;
+        this.releaseId  = new int[commitTime.length];
+        this.authors    = authors;
+    }
+
+    /* ---------------- accesso ------------------------------------------ */
+
+    public int size() {
+        return commitTime.length;
+    }
+
+    public Commit get(int index) {
+        Objects.checkIndex(index, size());
+        return new Commit(this, index);
+    }
+
+    public ObjectId objectId(int index) {
+        return new ObjectId((int) (shaHigh[index] >>> 32), (int) shaHigh[index],
+                (int) (shaMid[index] >>> 32), (int) shaMid[index], shaLow[index]);
+    }
+
+    /** Tempo del committer in secondi epoch, come {@link RevCommit#getCommitTime()}. */
+    public int commitTime(int index) {
+        return commitTime[index];
+    }
+
+    public String author(int index) {
+        return authors.get(authorId[index]);
+    }
+
+    public int authorId(int index) {
+        return authorId[index];
+    }
+
+    /** Numero di autori distinti. */
+    public int authorCount() {
+        return authors.size();
+    }
+
+    public int releaseId(int index) {
+        return releaseId[index];
+    }
+
+    /** Release del commit, {@code null} se non assegnato. */
+    public ReleaseInfo release(int index) {
+        return releases.get(releaseId[index]);
+    }
+
+    /** Rilegge il commit dal repository (intestazione e messaggio completi). */
+    public RevCommit revCommit(int index) {
+        try (RevWalk walk = new RevWalk(repo)) {
+            return walk.parseCommit(objectId(index));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Errore rilettura commit " + objectId(index).name(), e);
+        }
+    }
+
+    /* ---------------- assegnazione alle release ------------------------ */
+
+    /** Assegna il commit {@code index} alla release, che deve avere già il proprio id. */
+    public void assign(int index, Release release) {
+        releaseId[index] = release.getId();
+        releases.put(release.getId(), release);
+    }
+
+    /** Primi {@code n} commit, con autori e assegnazioni. */
+    public CommitStore head(int n) {
+        CommitStore out = new CommitStore(repo,
+                Arrays.copyOf(shaHigh, n), Arrays.copyOf(shaMid, n), Arrays.copyOf(shaLow, n),
+                Arrays.copyOf(commitTime, n), Arrays.copyOf(authorId, n), authors);
+        System.arraycopy(releaseId, 0, out.releaseId, 0, n);
+        out.releases.putAll(releases);
+        return out;
+    }
+
+    /* ---------------- costruzione -------------------------------------- */
+
+    public static Builder builder(Repository repo) {
+        return new Builder(repo);
+    }
+
+    /**
+     * Raccoglie i commit in qualsiasi ordine; {@link #build()} li ordina per
+     * tempo del committer. A parità di tempo l'ordine è l'inverso di quello
+     * di inserimento, come per una visita dal più recente poi rovesciata.
+     */
+    public static final class Builder {
+        private final Repository repo;
+        private long[] shaHigh    = new long[1024];
+        private long[] shaMid     = new long[1024];
+        private int[]  shaLow     = new int[1024];
+        private int[]  commitTime = new int[1024];
+        private int[]  authorId   = new int[1024];
+        private int size;
+        private final byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+        private final List<String> authors = new ArrayList<>();
+        private final Map<String, Integer> authorIds = new HashMap<>();
+
+        private Builder(Repository repo) {
+            this.repo = repo;
+        }
+
+        /** Copia id, tempo e autore; il {@code RevCommit} non viene trattenuto. */
+        public Builder add(RevCommit rc) {
+            if (size == commitTime.length) grow();
+            rc.copyRawTo(raw, 0);
+            shaHigh[size]    = readLong(raw, 0);
+            shaMid[size]     = readLong(raw, 8);
+            shaLow[size]     = readInt(raw, 16);
+            commitTime[size] = rc.getCommitTime();
+            authorId[size]   = authorIds.computeIfAbsent(rc.getAuthorIdent().getName(), name -> {
+                authors.add(name);
+                return authors.size() - 1;
+            });
+            size++;
+            return this;
+        }
+
+        public CommitStore build() {
+            // chiave = tempo nei 32 bit alti, posizione rovesciata nei bassi
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = ((long) commitTime[i] << 32) | (size - 1 - i);
+            }
+            Arrays.sort(keys);
+
+            long[] hi = new long[size];
+            long[] mid = new long[size];
+            int[] lo = new int[size];
+            int[] time = new int[size];
+            int[] author = new int[size];
+            for (int k = 0; k < size; k++) {
+                int i = size - 1 - (int) keys[k];
+                hi[k]     = shaHigh[i];
+                mid[k]    = shaMid[i];
+                lo[k]     = shaLow[i];
+                time[k]   = commitTime[i];
+                author[k] = authorId[i];
+            }
+            return new CommitStore(repo, hi, mid, lo, time, author, authors);
+        }
+
+        private void grow() {
+            int n = commitTime.length * 2;
+            shaHigh    = Arrays.copyOf(shaHigh, n);
+            shaMid     = Arrays.copyOf(shaMid, n);
+            shaLow     = Arrays.copyOf(shaLow, n);
+            commitTime = Arrays.copyOf(commitTime, n);
+            authorId   = Arrays.copyOf(authorId, n);
+        }
+    }
+
+    private static long readLong(byte[] b, int off) {
+        return ((long) readInt(b, off) << 32) | (readInt(b, off + 4) & 0xFFFFFFFFL);
+    }
+
+    private static int readInt(byte[] b, int off) {
+        return ((b[off] & 0xFF) << 24) | ((b[off + 1] & 0xFF) << 16)
+                | ((b[off + 2] & 0xFF) << 8) | (b[off + 3] & 0xFF);
+    }
+}
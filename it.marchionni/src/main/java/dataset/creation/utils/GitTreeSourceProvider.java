@@ -0,0 +1,110 @@
+package dataset.creation.utils;
+
+import dataset.creation.features.JavaSource;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Legge i sorgenti .java di una release direttamente dal database degli
+ * oggetti della clone locale (pack file), senza scaricare lo zipball da
+ * GitHub né scrivere nulla su disco.
+ *
+ * I path restituiti sono ancorati alla directory della clone, così i filtri
+ * di {@link PipelineUtils#DEFAULT_FILTERS} si comportano come nel walk della HEAD.
+ * Il {@link RepositoryService} resta del chiamante, che lo chiude.
+ */
+public class GitTreeSourceProvider {
+
+    /** Blob .java di un albero: identità nella release + id dell'oggetto Git. */
+    public static final class BlobRef {
+        private final File     file;
+        private final ObjectId blobId;
+
+        BlobRef(File file, ObjectId blobId) {
+            this.file   = file;
+            this.blobId = blobId;
+        }
+
+        public File     getFile()   { return file; }
+        public ObjectId getBlobId() { return blobId; }
+    }
+
+    private final File              repoDir;
+    private final RepositoryService service;
+    private final Repository        repo;
+
+    /** Legge dalla clone aperta in {@code service}. */
+    public GitTreeSourceProvider(RepositoryService service) {
+        this.service = service;
+        this.repo    = service.repository();
+        this.repoDir = repo.getWorkTree();
+    }
+
+    /** {@code true} se {@code rev} (tag, branch, sha) è risolvibile in un albero locale. */
+    public boolean hasRevision(String rev) throws IOException {
+        return repo.resolve(rev + "^{tree}") != null;
+    }
+
+    /** Elenca i blob .java dell'albero di {@code rev} che superano i filtri della pipeline. */
+    public List<BlobRef> listJavaBlobs(String rev) throws IOException {
+        ObjectId treeId = repo.resolve(rev + "^{tree}");
+        if (treeId == null) {
+            throw new IOException("Revisione non trovata nella clone locale: " + rev);
+        }
+
+        List<BlobRef> out = new ArrayList<>();
+        try (RevWalk rw = new RevWalk(repo);
+             TreeWalk tw = new TreeWalk(repo)) {
+            tw.addTree(rw.parseTree(treeId));
+            tw.setRecursive(true);
+            tw.setFilter(PathSuffixFilter.create(".java"));
+
+            while (tw.next()) {
+                FileMode mode = tw.getFileMode(0);
+                if (mode != FileMode.REGULAR_FILE && mode != FileMode.EXECUTABLE_FILE) {
+                    continue;   // symlink / submodule
+                }
+                File f = new File(repoDir, tw.getPathString());
+                if (PipelineUtils.isAnalyzable(f.toPath())) {
+                    out.add(new BlobRef(f, tw.getObjectId(0)));
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Carica in memoria il contenuto dei blob indicati con il reader del
+     * thread corrente, che resta aperto tra una release e l'altra; su una
+     * clone parziale i blob mancanti vengono prima scaricati con un'unica fetch.
+     */
+    public List<JavaSource> load(List<BlobRef> refs) throws IOException {
+        List<JavaSource> out = new ArrayList<>(refs.size());
+        if (PartialClone.isPartial(repo)) {
+            List<ObjectId> ids = new ArrayList<>(refs.size());
+            for (BlobRef ref : refs) {
+                ids.add(ref.getBlobId());
+            }
+            PartialClone.fetchMissing(repo, ids);
+        }
+        ObjectReader reader = service.reader();
+        for (BlobRef ref : refs) {
+            byte[] raw = reader.open(ref.getBlobId(), Constants.OBJ_BLOB).getBytes();
+            out.add(new JavaSource(ref.getFile(), ref.getBlobId().name(), new String(raw, UTF_8)));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,252 @@
+package dataset.creation.utils;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.transport.FilterSpec;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.util.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Clone parziale ("blobless"): commit e alberi di tutta la storia, blob solo
+ * sotto la soglia {@code -Ddataset.clone.blobLimit} (0 = nessun blob,
+ * negativo = clone completa, default). I blob mancanti si scaricano su
+ * richiesta dal remote promisor, chiedendoli per id: in blocco con
+ * {@link #fetchMissing} quando si sa già cosa servirà (i .java di una release
+ * o dei commit di bug-fix), uno alla volta tramite {@link #newReader} per i
+ * casi imprevisti. Il filtro per path (.java) è quindi lato client: il
+ * protocollo Git non ha filtri per estensione e il server vede solo gli id.
+ *
+ * La clone viene marcata come in Git ({@code extensions.partialclone},
+ * {@code remote.<nome>.promisor}), così anche la CLI recupera da sola gli
+ * oggetti mancanti. Il server deve accettare i filtri e le richieste per id
+ * ({@code uploadpack.allowFilter}, {@code uploadpack.allowAnySHA1InWant}
+ * o equivalenti: GitHub li accetta).
+ */
+public final class PartialClone {
+
+    private static final Logger log = LoggerFactory.getLogger(PartialClone.class);
+
+    /** Soglia in byte dei blob trasferiti alla clone; negativa = clone completa. */
+    public static final long BLOB_LIMIT = Long.getLong("dataset.clone.blobLimit", -1L);
+
+    /** Numero massimo di oggetti chiesti in una singola fetch. */
+    private static final int FETCH_BATCH = Integer.getInteger("dataset.clone.fetchBatch", 1000);
+
+    private static final Object FETCH_LOCK = new Object();
+
+    private PartialClone() { }
+
+    /**
+     * Filtro da chiedere al server per una soglia di {@code blobLimit} byte,
+     * nella sintassi di {@code git clone --filter}; {@code null} se la soglia
+     * è negativa (clone completa).
+     */
+    public static String filter(long blobLimit) {
+        if (blobLimit < 0) {
+            return null;
+        }
+        return blobLimit == 0 ? "blob:none" : "blob:limit=" + blobLimit;
+    }
+
+    /** Marca {@code repo} come clone parziale di {@code remote}, con il filtro usato. */
+    public static void markPromisor(Repository repo, String remote, String filter) throws IOException {
+        StoredConfig cfg = repo.getConfig();
+        cfg.setInt("core", null, "repositoryformatversion", 1);
+        cfg.setString("extensions", null, "partialclone", remote);
+        cfg.setBoolean("remote", remote, "promisor", true);
+        cfg.setString("remote", remote, "partialclonefilter", filter);
+        cfg.save();
+    }
+
+    /** Remote promisor di {@code repo}, {@code null} se la clone è completa. */
+    public static String promisorRemote(Repository repo) {
+        return repo.getConfig().getString("extensions", null, "partialclone");
+    }
+
+    public static boolean isPartial(Repository repo) {
+        return promisorRemote(repo) != null;
+    }
+
+    /** Filtro salvato nella clone parziale, da riusare nelle fetch successive. */
+    public static FilterSpec storedFilter(Repository repo) throws IOException {
+        String remote = promisorRemote(repo);
+        String line = remote == null ? null
+                : repo.getConfig().getString("remote", remote, "partialclonefilter");
+        return line == null ? FilterSpec.NO_FILTER : FilterSpec.fromFilterLine(line);
+    }
+
+    /**
+     * Scarica dal remote promisor gli oggetti di {@code ids} non ancora
+     * presenti, a blocchi di {@code -Ddataset.clone.fetchBatch}. Nessun
+     * effetto su una clone completa. Restituisce il numero di oggetti chiesti.
+     */
+    public static int fetchMissing(Repository repo, Collection<? extends AnyObjectId> ids)
+            throws IOException {
+        String remote = promisorRemote(repo);
+        if (remote == null) {
+            return 0;
+        }
+        // una fetch alla volta: worker diversi possono chiedere lo stesso blob
+        synchronized (FETCH_LOCK) {
+            Set<ObjectId> missing = new LinkedHashSet<>();
+            for (AnyObjectId id : ids) {
+                if (!ObjectId.zeroId().equals(id) && !repo.getObjectDatabase().has(id)) {
+                    missing.add(id.copy());
+                }
+            }
+            if (missing.isEmpty()) {
+                return 0;
+            }
+
+            List<RefSpec> specs = new ArrayList<>(Math.min(missing.size(), FETCH_BATCH));
+            for (ObjectId id : missing) {
+                specs.add(new RefSpec(id.name()));
+                if (specs.size() == FETCH_BATCH) {
+                    fetch(repo, remote, specs);
+                    specs.clear();
+                }
+            }
+            if (!specs.isEmpty()) {
+                fetch(repo, remote, specs);
+            }
+            log.info("→ scaricati {} oggetti mancanti da {}", missing.size(), remote);
+            return missing.size();
+        }
+    }
+
+    /**
+     * Fetch per id in un repository temporaneo vuoto, poi spostamento del pack
+     * ricevuto nella clone. Una fetch nella clone stessa annuncerebbe come
+     * "have" i commit locali e il server, che li sa completi, non manderebbe i
+     * blob raggiungibili da quei commit: proprio quelli che mancano.
+     */
+    private static void fetch(Repository repo, String remote, List<RefSpec> specs) throws IOException {
+        String url = repo.getConfig().getString("remote", remote, "url");
+        if (url == null) {
+            throw new IOException("Remote promisor senza url: " + remote);
+        }
+        File tmp = Files.createTempDirectory(repo.getDirectory().toPath(), "promisor-").toFile();
+        try {
+            try (Repository scratch = new FileRepositoryBuilder().setGitDir(tmp).build()) {
+                scratch.create(true);
+                // gc automatico dopo la fetch: JGit prende gc.log.lock prima di
+                // leggere gc.auto, quindi lo si fa girare nel thread della fetch
+                // (si ferma subito con gc.auto = 0) invece che in background,
+                // dove sbloccherebbe il lock in una directory già spostata o cancellata
+                StoredConfig cfg = scratch.getConfig();
+                cfg.setInt(ConfigConstants.CONFIG_GC_SECTION, null, ConfigConstants.CONFIG_KEY_AUTO, 0);
+                cfg.setBoolean(ConfigConstants.CONFIG_GC_SECTION, null, ConfigConstants.CONFIG_KEY_AUTODETACH, false);
+                cfg.save();
+                Git.wrap(scratch).fetch()
+                        .setRemote(url)
+                        .setRefSpecs(specs)
+                        .call();
+            }
+            movePacks(new File(tmp, "objects/pack"), new File(repo.getDirectory(), "objects/pack"));
+        } catch (GitAPIException e) {
+            throw new IOException("Errore recupero oggetti mancanti da " + remote, e);
+        } finally {
+            FileUtils.delete(tmp, FileUtils.RECURSIVE | FileUtils.IGNORE_ERRORS);
+        }
+    }
+
+    /** Sposta i pack: prima il .pack, poi l'indice che lo rende visibile ai lettori. */
+    private static void movePacks(File from, File to) throws IOException {
+        File[] packs = from.listFiles((dir, name) -> name.endsWith(".pack"));
+        if (packs == null) {
+            return;
+        }
+        for (File pack : packs) {
+            String base = pack.getName().substring(0, pack.getName().length() - ".pack".length());
+            Files.move(pack.toPath(), new File(to, pack.getName()).toPath(),
+                    StandardCopyOption.ATOMIC_MOVE);
+            Files.move(new File(from, base + ".idx").toPath(), new File(to, base + ".idx").toPath(),
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Reader di {@code repo}; su una clone parziale un oggetto mancante viene
+     * scaricato al primo accesso e poi letto normalmente.
+     */
+    public static ObjectReader newReader(Repository repo) {
+        return isPartial(repo) ? new LazyReader(repo) : repo.newObjectReader();
+    }
+
+    /** Reader che recupera dal promisor gli oggetti mancanti prima di rileggerli. */
+    private static final class LazyReader extends ObjectReader.Filter {
+        private final Repository repo;
+        private final ObjectReader delegate;
+
+        LazyReader(Repository repo) {
+            this.repo     = repo;
+            this.delegate = repo.newObjectReader();
+        }
+
+        @Override
+        protected ObjectReader delegate() {
+            return delegate;
+        }
+
+        @Override
+        public ObjectReader newReader() {
+            return new LazyReader(repo);
+        }
+
+        @Override
+        public ObjectLoader open(AnyObjectId id) throws MissingObjectException, IOException {
+            return open(id, OBJ_ANY);
+        }
+
+        @Override
+        public ObjectLoader open(AnyObjectId id, int typeHint)
+                throws MissingObjectException, IncorrectObjectTypeException, IOException {
+            try {
+                return delegate.open(id, typeHint);
+            } catch (MissingObjectException e) {
+                materialize(id, e);
+                return delegate.open(id, typeHint);
+            }
+        }
+
+        @Override
+        public long getObjectSize(AnyObjectId id, int typeHint)
+                throws MissingObjectException, IncorrectObjectTypeException, IOException {
+            try {
+                return delegate.getObjectSize(id, typeHint);
+            } catch (MissingObjectException e) {
+                materialize(id, e);
+                return delegate.getObjectSize(id, typeHint);
+            }
+        }
+
+        private void materialize(AnyObjectId id, MissingObjectException cause) throws IOException {
+            log.debug("Oggetto {} assente nella clone parziale, lo scarico", id.name());
+            if (fetchMissing(repo, List.of(id)) == 0 && !repo.getObjectDatabase().has(id)) {
+                throw cause;
+            }
+        }
+    }
+}
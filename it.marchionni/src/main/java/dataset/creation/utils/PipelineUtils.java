@@ -1,6 +1,10 @@
 package dataset.creation.utils;
 
+import dataset.creation.exceptions.FeatureExtractionException;
+import dataset.creation.features.CodeSmellIndex;
+import dataset.creation.features.FeatureCache;
 import dataset.creation.features.FeatureExtractor;
+import dataset.creation.features.JavaSource;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -10,16 +14,23 @@ import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 
-import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import dataset.creation.features.MethodFeatures;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
@@ -34,6 +45,13 @@ public final class PipelineUtils {
     private static final OkHttpClient HTTP = new OkHttpClient();
     private static final Gson         GSON = new Gson();
 
+    /**
+     * Numero di worker per l'estrazione parallela delle feature
+     * (proprietà di sistema {@code dataset.workers}, default = core disponibili).
+     */
+    public static final int EXTRACTION_WORKERS = Math.max(1,
+            Integer.getInteger("dataset.workers", Runtime.getRuntime().availableProcessors()));
+
     private PipelineUtils() { /* utility class */ }
 
     /* =========================================================
@@ -80,10 +98,9 @@ public final class PipelineUtils {
 
     /** Restituisce l’URL remoto (origin) di una clone Git. */
     public static String repoRemoteUrl(Path projectRoot) throws IOException {
-        Repository r = new FileRepositoryBuilder()
-                .setGitDir(projectRoot.resolve(".git").toFile())
-                .readEnvironment().findGitDir().build();
-        return r.getConfig().getString("remote", "origin", "url");
+        try (RepositoryService git = RepositoryService.open(projectRoot.toFile())) {
+            return git.repository().getConfig().getString("remote", "origin", "url");
+        }
     }
 
     /** Ottiene tutti i tag GitHub (paginati 100/call). */
@@ -145,6 +162,45 @@ public final class PipelineUtils {
         return tmp;
     }
 
+    /**
+     * Variante in streaming di {@link #downloadAndUnzip}: scorre lo zipball
+     * senza scrivere nulla su disco e tiene in memoria solo i sorgenti .java
+     * che superano {@link #DEFAULT_FILTERS}; docs, jar e risorse vengono saltati.
+     */
+    public static List<JavaSource> downloadJavaSources(String owner, String repo, String tag)
+            throws IOException {
+        return streamJavaSources(HttpUrl.parse(
+                "https://api.github.com/repos/" + owner + "/" + repo + "/zipball/" + tag
+        ));
+    }
+
+    /** Scarica lo ZIP da {@code url} e ne estrae in memoria i soli sorgenti analizzabili. */
+    public static List<JavaSource> streamJavaSources(HttpUrl url) throws IOException {
+        Request req = new Request.Builder().url(url).build();
+        List<JavaSource> out = new ArrayList<>();
+
+        try (Response resp = HTTP.newCall(req).execute()) {
+            if (!resp.isSuccessful())
+                throw new IOException("Download ZIP fallito: " + resp);
+
+            try (InputStream in = resp.body().byteStream();
+                 ZipInputStream zip = new ZipInputStream(in)) {
+
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    if (!entry.isDirectory() && isAnalyzable(Paths.get(entry.getName()))) {
+                        byte[] raw = zip.readAllBytes();
+                        out.add(new JavaSource(new File(entry.getName()),
+                                FeatureCache.blobId(raw),
+                                new String(raw, StandardCharsets.UTF_8)));
+                    }
+                    zip.closeEntry();
+                }
+            }
+        }
+        return out;
+    }
+
     /** Se lo ZIP contiene una sola sottodirectory, la restituisce; altrimenti torna dir. */
     public static Path findSingleSubdir(Path dir) throws IOException {
         try (Stream<Path> s = Files.list(dir)) {
@@ -174,21 +230,243 @@ public final class PipelineUtils {
     public static Map<File, Map<String, MethodFeatures>>
     walkAndExtract(File dir,
                    FeatureExtractor fx) throws IOException {
+        return walkAndExtract(dir, fx, 1);
+    }
+
+    /**
+     * Come {@link #walkAndExtract(File, FeatureExtractor)}, ma distribuisce
+     * i file su {@code workers} thread. Il risultato è identico a quello
+     * sequenziale: la mappa finale viene riempita nell'ordine del walk.
+     * @param workers  numero di thread (≤ 1 → esecuzione sequenziale)
+     */
+    public static Map<File, Map<String, MethodFeatures>>
+    walkAndExtract(File dir,
+                   FeatureExtractor fx,
+                   int workers) throws IOException {
+
+        return extractAll(collectJavaFiles(dir), f -> f, workers, fx::extractFromFile);
+    }
+
+    /**
+     * Modalità batch: PMD gira una sola volta su tutti i file della release
+     * (con {@code workers} thread interni), poi le metriche AST vengono
+     * calcolate in parallelo e i code smell attribuiti al metodo per range di righe.
+     */
+    public static Map<File, Map<String, MethodFeatures>>
+    walkAndExtractBatch(File dir,
+                        FeatureExtractor fx,
+                        int workers) throws IOException {
+
+        return extractFilesBatch(collectJavaFiles(dir), fx, workers);
+    }
+
+    /**
+     * Come {@link #walkAndExtractBatch(File, FeatureExtractor, int)}, ma consulta
+     * prima la {@link FeatureCache}: solo i file con un blob id mai visto passano
+     * da PMD e JavaParser, e i loro risultati vengono aggiunti alla cache.
+     */
+    public static Map<File, Map<String, MethodFeatures>>
+    walkAndExtractBatch(File dir,
+                        FeatureExtractor fx,
+                        int workers,
+                        FeatureCache cache) throws IOException {
+
+        List<File> files = collectJavaFiles(dir);
+        List<String> blobIds = new ArrayList<>(files.size());
+        for (File f : files) {
+            blobIds.add(FeatureCache.blobId(Files.readAllBytes(f.toPath())));
+        }
+        return extractWithCache(files, f -> f, blobIds, cache,
+                misses -> extractFilesBatch(misses, fx, workers));
+    }
+
+    /**
+     * Estrae le feature della release {@code rev} leggendo i blob .java
+     * direttamente dalla clone locale: niente download, niente file temporanei.
+     * I blob già presenti in cache non vengono nemmeno letti dal pack.
+     */
+    public static Map<File, Map<String, MethodFeatures>>
+    extractFromGitTree(GitTreeSourceProvider sources,
+                       String rev,
+                       FeatureExtractor fx,
+                       int workers,
+                       FeatureCache cache) throws IOException {
+
+        List<GitTreeSourceProvider.BlobRef> refs = sources.listJavaBlobs(rev);
+        List<String> blobIds = refs.stream()
+                .map(r -> r.getBlobId().name())
+                .collect(Collectors.toList());
+        return extractWithCache(refs, GitTreeSourceProvider.BlobRef::getFile, blobIds, cache,
+                misses -> extractSourcesBatch(sources.load(misses), fx, workers));
+    }
+
+    /**
+     * Estrae le feature da sorgenti già in memoria (es. {@link #downloadJavaSources}),
+     * servendo dalla cache quelli con blob id già noto.
+     */
+    public static Map<File, Map<String, MethodFeatures>>
+    extractSources(List<JavaSource> sources,
+                   FeatureExtractor fx,
+                   int workers,
+                   FeatureCache cache) throws IOException {
+
+        List<String> blobIds = sources.stream()
+                .map(JavaSource::getBlobId)
+                .collect(Collectors.toList());
+        return extractWithCache(sources, JavaSource::getFile, blobIds, cache,
+                misses -> extractSourcesBatch(misses, fx, workers));
+    }
+
+    /** Batch PMD + metriche AST per sorgenti già in memoria. */
+    public static Map<File, Map<String, MethodFeatures>>
+    extractSourcesBatch(List<JavaSource> sources,
+                        FeatureExtractor fx,
+                        int workers) throws IOException {
+
+        if (sources.isEmpty()) return new HashMap<>();
+        CodeSmellIndex smells;
+        try {
+            smells = fx.collectCodeSmellsFromSources(sources, workers);
+        } catch (FeatureExtractionException e) {
+            throw new IOException("Analisi PMD fallita su " + sources.size() + " sorgenti", e);
+        }
+        return extractAll(sources, JavaSource::getFile, workers,
+                s -> fx.extractFromSource(s, smells));
+    }
+
+    /** {@code true} se il path è un sorgente .java non escluso da {@link #DEFAULT_FILTERS}. */
+    public static boolean isAnalyzable(Path p) {
+        if (!p.toString().endsWith(".java")) return false;
+        for (PathMatcher m : DEFAULT_FILTERS) {
+            if (m.matches(p)) return false;
+        }
+        return true;
+    }
+
+    private static Map<File, Map<String, MethodFeatures>>
+    extractFilesBatch(List<File> files, FeatureExtractor fx, int workers) throws IOException {
+
+        if (files.isEmpty()) return new HashMap<>();
+        CodeSmellIndex smells;
+        try {
+            smells = fx.collectCodeSmells(files, workers);
+        } catch (FeatureExtractionException e) {
+            throw new IOException("Analisi PMD fallita su " + files.size() + " file", e);
+        }
+        return extractAll(files, f -> f, workers, f -> fx.extractFromFile(f, smells));
+    }
+
+    /** Estrazione di un singolo elemento, usata dal motore sequenziale/parallelo. */
+    @FunctionalInterface
+    private interface Extraction<T> {
+        Map<String, MethodFeatures> extract(T item) throws FeatureExtractionException;
+    }
+
+    /** Estrazione di un gruppo di elementi (i soli miss della cache). */
+    @FunctionalInterface
+    private interface BatchExtraction<T> {
+        Map<File, Map<String, MethodFeatures>> extract(List<T> items) throws IOException;
+    }
+
+    /**
+     * Serve dalla cache gli elementi già noti e delega gli altri a {@code batch};
+     * {@code blobIds} è allineata a {@code items}. Il risultato segue l'ordine di {@code items}.
+     */
+    private static <T> Map<File, Map<String, MethodFeatures>>
+    extractWithCache(List<T> items, Function<T, File> fileOf, List<String> blobIds,
+                     FeatureCache cache, BatchExtraction<T> batch) throws IOException {
+
+        Map<File, Map<String, MethodFeatures>> cached = new HashMap<>();
+        Map<File, String> missIds = new HashMap<>();
+        List<T> misses = new ArrayList<>();
 
-        Collection<PathMatcher> ex = Arrays.asList(DEFAULT_FILTERS);
-        Map<File, Map<String, MethodFeatures>> out = new HashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            T item = items.get(i);
+            Map<String, MethodFeatures> hit = cache.get(blobIds.get(i));
+            if (hit != null) {
+                cached.put(fileOf.apply(item), hit);
+            } else {
+                missIds.put(fileOf.apply(item), blobIds.get(i));
+                misses.add(item);
+            }
+        }
+
+        Map<File, Map<String, MethodFeatures>> fresh = Map.of();
+        if (!misses.isEmpty()) {
+            fresh = batch.extract(misses);
+            for (Map.Entry<File, Map<String, MethodFeatures>> e : fresh.entrySet()) {
+                cache.put(missIds.get(e.getKey()), e.getValue());
+            }
+        }
+
+        // ricompone nell'ordine originale
+        Map<File, Map<String, MethodFeatures>> out = new LinkedHashMap<>();
+        for (T item : items) {
+            File f = fileOf.apply(item);
+            Map<String, MethodFeatures> m = cached.containsKey(f) ? cached.get(f) : fresh.get(f);
+            if (m != null) out.put(f, m);
+        }
+        return out;
+    }
+
+    /**
+     * Applica {@code task} a ogni elemento, su {@code workers} thread.
+     * Gli elementi in errore vengono saltati; la mappa risultante è riempita
+     * nell'ordine di {@code items}, qualunque sia il numero di worker.
+     */
+    private static <T> Map<File, Map<String, MethodFeatures>>
+    extractAll(List<T> items, Function<T, File> fileOf, int workers, Extraction<T> task)
+            throws IOException {
+
+        Map<File, Map<String, MethodFeatures>> out = new LinkedHashMap<>();
 
+        if (workers <= 1 || items.size() <= 1) {
+            for (T item : items) {
+                try { out.put(fileOf.apply(item), task.extract(item)); }
+                catch (Exception ignored) { /* skip file on error */ }
+            }
+            return out;
+        }
+
+        ConcurrentMap<File, Map<String, MethodFeatures>> collected = new ConcurrentHashMap<>();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(workers, items.size()));
+        try {
+            List<Future<?>> tasks = new ArrayList<>(items.size());
+            for (T item : items) {
+                tasks.add(pool.submit(() -> {
+                    try { collected.put(fileOf.apply(item), task.extract(item)); }
+                    catch (Exception ignored) { /* skip file on error */ }
+                }));
+            }
+            for (Future<?> t : tasks) {
+                t.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Estrazione feature interrotta");
+        } catch (ExecutionException e) {
+            throw new IOException("Errore durante l'estrazione parallela", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // stesso ordine di inserimento del percorso sequenziale
+        for (T item : items) {
+            File f = fileOf.apply(item);
+            Map<String, MethodFeatures> m = collected.get(f);
+            if (m != null) out.put(f, m);
+        }
+        return out;
+    }
+
+    /** Elenca i sorgenti .java sotto {@code dir} scartando quelli filtrati. */
+    private static List<File> collectJavaFiles(File dir) throws IOException {
         try (Stream<Path> ps = Files.walk(dir.toPath())) {
-            ps.filter(Files::isRegularFile)
-                    .filter(p -> p.toString().endsWith(".java"))
-                    .filter(p -> ex.stream().noneMatch(m -> m.matches(p)))
+            return ps.filter(Files::isRegularFile)
+                    .filter(PipelineUtils::isAnalyzable)
                     .map(Path::toFile)
-                    .forEach(f -> {
-                        try { out.put(f, fx.extractFromFile(f)); }
-                        catch (Exception ignored) { /* skip file on error */ }
-                    });
+                    .collect(Collectors.toList());
         }
-        return out;
     }
 
     /* =========================================================
@@ -0,0 +1,182 @@
+package dataset.creation.utils;
+
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.eclipse.jgit.storage.file.WindowCacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Accesso condiviso alla clone di un progetto: un solo {@link Repository}
+ * (quindi un solo elenco di pack e di indici aperti) per la pipeline, invece
+ * di uno per componente. Il servizio si apre una volta e si passa ai
+ * componenti che leggono la clone ({@code BuggyMethodExtractor},
+ * {@link GitTreeSourceProvider}), che non lo chiudono.
+ *
+ * {@link #open(File)} restituisce la stessa istanza finché qualcuno la tiene
+ * aperta, così anche chi apre la clone per conto proprio (GitInjection) non
+ * ne crea una seconda; ogni {@code open} va bilanciato da un {@link #close()},
+ * e l'ultimo chiude reader e repository e registra le statistiche della
+ * cache dei pack.
+ *
+ * La {@code WindowCache} di JGit (finestre dei pack in memoria) è globale
+ * alla JVM e viene configurata una volta, al primo {@code open}:
+ * {@code -Ddataset.git.packedGitLimit} (byte, default 256 MiB),
+ * {@code -Ddataset.git.windowSize} (byte, default 64 KiB),
+ * {@code -Ddataset.git.mmap} (pack mappati in memoria, default no),
+ * {@code -Ddataset.git.deltaBaseCacheLimit} (byte per reader, default 32 MiB),
+ * {@code -Ddataset.git.openFiles} (default 256). I default di JGit (10 MiB,
+ * finestre da 8 KiB) sono pensati per un server con molti repository: qui
+ * c'è una sola clone letta da tutti i worker. Senza mmap le finestre sono
+ * array sullo heap Java: il limite di 256 MiB va messo in conto nel
+ * {@code -Xmx}, insieme a una cache delle basi dei delta per reader aperto.
+ */
+public final class RepositoryService implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RepositoryService.class);
+
+    static final long    PACKED_GIT_LIMIT = Long.getLong("dataset.git.packedGitLimit", 256L << 20);
+    static final int     WINDOW_SIZE      = Integer.getInteger("dataset.git.windowSize", 64 << 10);
+    static final boolean MMAP             = Boolean.getBoolean("dataset.git.mmap");
+    static final int     DELTA_BASE_CACHE = Integer.getInteger("dataset.git.deltaBaseCacheLimit", 32 << 20);
+    static final int     OPEN_FILES       = Integer.getInteger("dataset.git.openFiles", 256);
+
+    /* ---------------- registro delle istanze aperte -------------------- */
+
+    private static final Map<File, RepositoryService> OPEN = new HashMap<>();
+    private static boolean windowCacheInstalled;
+
+    private final File       key;
+    private final Repository repo;
+    private int refs = 1;
+
+    /** Reader per thread, chiusi insieme al servizio. */
+    private final ThreadLocal<ObjectReader> readers = new ThreadLocal<>();
+    private final Queue<ObjectReader> allReaders = new ConcurrentLinkedQueue<>();
+
+    /** Contatori della WindowCache all'apertura, per riportare solo la quota di questo servizio. */
+    private final long hits0;
+    private final long misses0;
+    private final long evictions0;
+
+    private RepositoryService(File key, Repository repo) {
+        this.key      = key;
+        this.repo     = repo;
+        WindowCacheStats s = WindowCacheStats.getStats();
+        this.hits0      = s.getHitCount();
+        this.misses0    = s.getMissCount();
+        this.evictions0 = s.getEvictionCount();
+    }
+
+    /**
+     * Servizio della clone in {@code workTree} (directory con {@code .git}),
+     * condiviso con chi l'ha già aperto.
+     */
+    public static RepositoryService open(File workTree) throws IOException {
+        File key = new File(workTree, ".git").getCanonicalFile();
+        synchronized (OPEN) {
+            installWindowCache();
+            RepositoryService s = OPEN.get(key);
+            if (s != null) {
+                s.refs++;
+                return s;
+            }
+            Repository repo = new FileRepositoryBuilder()
+                    .setGitDir(key)
+                    .readEnvironment().findGitDir().build();
+            s = new RepositoryService(key, repo);
+            OPEN.put(key, s);
+            return s;
+        }
+    }
+
+    private static void installWindowCache() {
+        if (windowCacheInstalled) {
+            return;
+        }
+        WindowCacheConfig cfg = new WindowCacheConfig();
+        cfg.setPackedGitLimit(PACKED_GIT_LIMIT);
+        cfg.setPackedGitWindowSize(WINDOW_SIZE);
+        cfg.setPackedGitMMAP(MMAP);
+        cfg.setDeltaBaseCacheLimit(DELTA_BASE_CACHE);
+        cfg.setPackedGitOpenFiles(OPEN_FILES);
+        cfg.install();
+        windowCacheInstalled = true;
+        log.debug("WindowCache: limite {} MiB, finestre {} KiB, mmap={}, delta base {} MiB",
+                PACKED_GIT_LIMIT >> 20, WINDOW_SIZE >> 10, MMAP, DELTA_BASE_CACHE >> 20);
+    }
+
+    /* ---------------- accesso ------------------------------------------ */
+
+    public Repository repository() {
+        return repo;
+    }
+
+    /**
+     * Reader del thread corrente, creato al primo uso e riusato dalle
+     * chiamate successive dello stesso thread (la cache delle basi dei delta
+     * resta calda tra un commit e l'altro). Non va chiuso né passato ad altri
+     * thread: lo chiude il servizio, quindi resta in memoria fino all'ultimo
+     * {@link #close()}. Va usato solo da thread che durano quanto la pipeline;
+     * i task di un pool temporaneo usano {@link #newReader()}. Su una clone
+     * parziale recupera gli oggetti mancanti (vedi {@link PartialClone#newReader}).
+     */
+    public ObjectReader reader() {
+        ObjectReader r = readers.get();
+        if (r == null) {
+            r = PartialClone.newReader(repo);
+            readers.set(r);
+            allReaders.add(r);
+        }
+        return r;
+    }
+
+    /**
+     * Reader indipendente, di proprietà del chiamante che lo deve chiudere
+     * (con la sua cache delle basi dei delta, fino a
+     * {@code dataset.git.deltaBaseCacheLimit} byte).
+     */
+    public ObjectReader newReader() {
+        return PartialClone.newReader(repo);
+    }
+
+    /* ---------------- chiusura ----------------------------------------- */
+
+    @Override
+    public void close() {
+        synchronized (OPEN) {
+            if (--refs > 0) {
+                return;
+            }
+            OPEN.remove(key);
+        }
+        ObjectReader r;
+        while ((r = allReaders.poll()) != null) {
+            r.close();
+        }
+        repo.close();
+        log.info("Pack di {}: {}", key.getParentFile().getName(), this);
+    }
+
+    /** Statistiche della WindowCache dall'apertura del servizio. */
+    @Override
+    public String toString() {
+        WindowCacheStats s = WindowCacheStats.getStats();
+        long hits   = s.getHitCount() - hits0;
+        long misses = s.getMissCount() - misses0;
+        long total  = hits + misses;
+        return String.format("WindowCache[hit=%d, miss=%d, evicted=%d, hitRate=%.1f%%, open=%d file/%d MiB]",
+                hits, misses, s.getEvictionCount() - evictions0,
+                total == 0 ? 0.0 : 100.0 * hits / total,
+                s.getOpenFileCount(), s.getOpenByteCount() >> 20);
+    }
+}
@@ -0,0 +1,36 @@
+package dataset.creation;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Cronometro minimo per i micro-benchmark nei test: qualche giro di
+ * riscaldamento, poi il migliore di {@code runs} misure. I benchmark girano
+ * solo con {@code -Ddataset.bench=true} (es. {@code mvn test -Ddataset.bench=true}).
+ */
+public final class Bench {
+
+    public static final String ENABLED = "dataset.bench";
+
+    /** Valore consumato dai giri misurati, perché il JIT non li elimini. */
+    private static long sink;
+
+    private Bench() { }
+
+    /** Miglior tempo in nanosecondi di {@code task} su {@code runs} misure. */
+    public static long bestOf(int runs, LongSupplier task) {
+        for (int i = 0; i < Math.max(1, runs / 2); i++) {
+            sink += task.getAsLong();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long t0 = System.nanoTime();
+            sink += task.getAsLong();
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        return best;
+    }
+
+    public static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,124 @@
+package dataset.creation;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.internal.storage.file.PackInserter;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TreeFormatter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Repository bare con una storia sintetica lunga, per i benchmark sulla
+ * visita dei commit. Il master è lineare; ogni {@link #SIDE_EVERY} commit
+ * parte un branch laterale di {@link #SIDE_LENGTH} commit, riunito con un
+ * merge e lasciato come ref; un commit ogni 997 ha l'orario indietro di
+ * cinque minuti (clock skew). Ogni commit modifica un file di testo.
+ *
+ * Gli oggetti vanno in un solo pack ({@code PackInserter} di JGit): 100 000
+ * commit (300 000 oggetti) si generano in una decina di secondi, senza file
+ * sciolti.
+ */
+public final class HistoryGenerator {
+
+    public static final int SIDE_EVERY  = 1000;
+    public static final int SIDE_LENGTH = 20;
+
+    private static final long EPOCH = Instant.parse("2017-07-14T00:00:00Z").getEpochSecond();
+    private static final ZoneId UTC = ZoneOffset.UTC;
+
+    private final Repository repo;
+    private final ObjectInserter inserter;
+    private final Map<String, ObjectId> refs = new LinkedHashMap<>();
+    private int created;
+
+    private HistoryGenerator(Repository repo, ObjectInserter inserter) {
+        this.repo     = repo;
+        this.inserter = inserter;
+    }
+
+    /**
+     * Crea in {@code dir} un repository bare con {@code mainLine} passi sul
+     * master.
+     *
+     * @return numero totale di commit creati, branch laterali compresi
+     */
+    public static int generate(Path dir, int mainLine) throws IOException, GitAPIException {
+        try (Git git = Git.init().setBare(true).setDirectory(dir.toFile()).setInitialBranch("master").call()) {
+            Repository repo = git.getRepository();
+            try (PackInserter ins = ((FileRepository) repo).getObjectDatabase().newPackInserter()) {
+                ins.checkExisting(false);   // repository nuovo: nessun oggetto da cercare
+                HistoryGenerator gen = new HistoryGenerator(repo, ins);
+                gen.build(mainLine);
+                ins.flush();
+                gen.updateRefs();
+                return gen.created;
+            }
+        }
+    }
+
+    private void build(int mainLine) throws IOException {
+        ObjectId last = null;
+        for (int i = 0; i < mainLine; i++) {
+            long time = EPOCH + i * 60L - (i % 997 == 0 ? 300 : 0);
+            if (i % SIDE_EVERY == SIDE_EVERY / 2 && last != null) {
+                ObjectId side = last;
+                for (int j = 0; j < SIDE_LENGTH; j++) {
+                    side = commit("side " + i + "." + j, time + j, side);
+                }
+                refs.put(Constants.R_HEADS + "side" + i, side);
+                last = commit("merge side" + i, time + 30, last, side);
+            } else {
+                last = last == null ? commit("c" + i, time) : commit("c" + i, time, last);
+            }
+        }
+        if (last != null) {
+            refs.put(Constants.R_HEADS + "master", last);
+        }
+    }
+
+    private ObjectId commit(String message, long time, ObjectId... parents) throws IOException {
+        TreeFormatter tree = new TreeFormatter();
+        tree.append("counter.txt", FileMode.REGULAR_FILE,
+                inserter.insert(Constants.OBJ_BLOB, (message + "\n").getBytes(UTF_8)));
+
+        PersonIdent who = new PersonIdent("dev", "dev@example.org",
+                Instant.ofEpochSecond(time), UTC);
+        CommitBuilder cb = new CommitBuilder();
+        cb.setTreeId(inserter.insert(tree));
+        cb.setParentIds(parents);
+        cb.setAuthor(who);
+        cb.setCommitter(who);
+        cb.setMessage(message + "\n");
+        created++;
+        return inserter.insert(cb);
+    }
+
+    private void updateRefs() throws IOException {
+        for (Map.Entry<String, ObjectId> e : refs.entrySet()) {
+            RefUpdate ru = repo.updateRef(e.getKey());
+            ru.setNewObjectId(e.getValue());
+            ru.setForceUpdate(true);
+            RefUpdate.Result r = ru.update();
+            if (r != RefUpdate.Result.NEW && r != RefUpdate.Result.FORCED) {
+                throw new IOException("Aggiornamento di " + e.getKey() + " fallito: " + r);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package dataset.creation;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Date;
+import java.util.TimeZone;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Repository Git locale per i test, costruito con le API di JGit: scrive
+ * file nel working tree, crea commit con autore e orario deterministici
+ * (un minuto dopo l'altro) e tag.
+ */
+public final class TestRepo implements AutoCloseable {
+
+    private static final long EPOCH = Instant.parse("2020-01-01T00:00:00Z").getEpochSecond();
+
+    private final Git git;
+    private final Path dir;
+    private int commits;
+
+    private TestRepo(Git git, Path dir) {
+        this.git = git;
+        this.dir = dir;
+    }
+
+    public static TestRepo init(Path dir) throws GitAPIException {
+        return new TestRepo(Git.init().setDirectory(dir.toFile()).setInitialBranch("master").call(), dir);
+    }
+
+    public Git git()      { return git; }
+    public Path dir()     { return dir; }
+    public File workTree() { return dir.toFile(); }
+
+    public TestRepo write(String path, String content) throws IOException {
+        Path f = dir.resolve(path);
+        Files.createDirectories(f.getParent());
+        Files.write(f, content.getBytes(UTF_8));
+        return this;
+    }
+
+    public TestRepo write(String path, byte[] content) throws IOException {
+        Path f = dir.resolve(path);
+        Files.createDirectories(f.getParent());
+        Files.write(f, content);
+        return this;
+    }
+
+    public RevCommit commit(String message) throws GitAPIException {
+        return commit(message, "dev");
+    }
+
+    /** Commit di tutte le modifiche del working tree, con autore {@code author}. */
+    public RevCommit commit(String message, String author) throws GitAPIException {
+        git.add().addFilepattern(".").call();
+        git.add().addFilepattern(".").setUpdate(true).call();
+        PersonIdent who = new PersonIdent(author, author + "@example.org",
+                Date.from(Instant.ofEpochSecond(EPOCH + 60L * commits++)),
+                TimeZone.getTimeZone("UTC"));
+        return git.commit().setMessage(message).setAuthor(who).setCommitter(who).setSign(false).call();
+    }
+
+    public TestRepo tag(String name) throws GitAPIException {
+        git.tag().setName(name).setAnnotated(false).call();
+        return this;
+    }
+
+    public TestRepo checkout(String rev) throws GitAPIException {
+        git.checkout().setName(rev).call();
+        return this;
+    }
+
+    @Override
+    public void close() {
+        git.close();   // chiude anche il repository aperto da init
+    }
+}
@@ -0,0 +1,59 @@
+package dataset.creation.features;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Le ricerche per file e firma (righe del CSV) vanno per id testuale, senza
+ * dizionario delle chiavi; ogni calcolo ha il proprio dizionario.
+ */
+class BuggyInfoLookupTest {
+
+    @Test
+    void inMemoryLookupByFileAndSignature() {
+        MethodKey touched = MethodKey.of(new MethodKeyDictionary(), "Lookup.java", "void fixed(int)");
+        BuggyInfo info = BuggyInfo.of(Set.of(touched.toString()), Map.of());
+
+        assertTrue(info.isBuggy("Lookup.java", "void fixed( int )"));
+        assertFalse(info.isBuggy("Lookup.java", "void neverTouched()"));
+        assertNull(info.getMetricsFor("Lookup.java", "void neverTouched()"));
+    }
+
+    @Test
+    void mappedLookupByFileAndSignature(@TempDir Path tmp) throws Exception {
+        String id = "Mapped.java#voidonlyOnDisk(String)";
+        Path file = tmp.resolve("buggy.bin");
+        MappedBuggyInfo.write(file, BuggyInfo.of(Set.of(id), Map.of()), new byte[20]);
+
+        MappedBuggyInfo mapped = MappedBuggyInfo.open(file);
+        assertTrue(mapped.isBuggy("Mapped.java", "void onlyOnDisk(String)"));
+        assertFalse(mapped.isBuggy("Mapped.java", "void other()"));
+        assertNull(mapped.getMetricsFor("Mapped.java", "void onlyOnDisk(String)"));
+    }
+
+    /** Due progetti nello stesso processo: id da 0 e nessuna chiave dell'altro. */
+    @Test
+    void eachComputationHasItsOwnKeys() {
+        ChangeAccumulator first = new ChangeAccumulator(new MethodKeyDictionary());
+        first.markBuggy(MethodKey.of(first.keys(), "A.java", "void a()"));
+        first.markBuggy(MethodKey.of(first.keys(), "A.java", "void b()"));
+
+        ChangeAccumulator second = new ChangeAccumulator(new MethodKeyDictionary());
+        MethodKey c = MethodKey.of(second.keys(), "C.java", "void c()");
+        second.markBuggy(c);
+
+        assertEquals(0, c.id());
+        assertEquals(1, second.keys().size());
+        assertEquals(Set.of("A.java#voida()", "A.java#voidb()"), first.toBuggyInfo().getBuggyMethods());
+        assertEquals(Set.of("C.java#voidc()"), second.toBuggyInfo().getBuggyMethods());
+    }
+}
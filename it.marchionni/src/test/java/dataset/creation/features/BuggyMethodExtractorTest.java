@@ -0,0 +1,94 @@
+package dataset.creation.features;
+
+import dataset.creation.Bench;
+import dataset.creation.TestRepo;
+import dataset.creation.fetcher.jira.JiraTicket;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BuggyMethodExtractorTest {
+
+    private static final int FILES   = 4;
+    private static final int METHODS = 300;
+    private static final int FIXES   = 60;
+
+    /**
+     * Byte allocati dal thread per commit di bug-fix, in un'elaborazione
+     * seriale da zero su file grandi ({@value #METHODS} metodi, ~1800 righe):
+     * ogni fix cambia il corpo di un metodo.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = Bench.ENABLED, matches = "true")
+    void allocationPerFixCommit(@TempDir Path tmp) throws Exception {
+        List<JiraTicket> tickets = new ArrayList<>();
+        try (TestRepo repo = TestRepo.init(tmp.resolve("repo"))) {
+            int[][] bounds = new int[FILES][METHODS];
+            for (int f = 0; f < FILES; f++) {
+                repo.write(path(f), source(f, bounds[f]));
+            }
+            repo.commit("initial import");
+            repo.tag("release-1");
+            for (int k = 0; k < FIXES; k++) {
+                int f = k % FILES;
+                bounds[f][(k * 7) % METHODS]++;
+                repo.write(path(f), source(f, bounds[f]));
+                repo.commit("PROJ-" + k + " fix boundary", "dev" + (k % 3));
+                tickets.add(bug("PROJ-" + k));
+            }
+            repo.tag("release-2");
+
+            com.sun.management.ThreadMXBean mx =
+                    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long thread = Thread.currentThread().getId();
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < 4; run++) {
+                Path cache = Files.createDirectories(tmp.resolve("cache" + run));
+                long before = mx.getThreadAllocatedBytes(thread);
+                BuggyInfo info = BuggyMethodExtractor.computeOrLoad(repo.workTree(), tickets, "proj", cache, 1);
+                long allocated = mx.getThreadAllocatedBytes(thread) - before;
+                assertEquals(FIXES, info.getBuggyMethods().size());
+                if (run > 0) {   // il primo giro scalda JIT e parser
+                    best = Math.min(best, allocated);
+                }
+            }
+            System.out.printf("BuggyMethodExtractor: %d fix, %.1f MB allocati, %.0f KB per commit%n",
+                    FIXES, best / 1e6, best / 1e3 / FIXES);
+        }
+    }
+
+    private static String path(int f) {
+        return "src/main/java/gen/Big" + f + ".java";
+    }
+
+    /** Classe con {@value #METHODS} metodi; {@code bounds[i]} cambia il corpo del metodo i. */
+    private static String source(int f, int[] bounds) {
+        StringBuilder sb = new StringBuilder("package gen;\npublic class Big" + f + " {\n");
+        for (int i = 0; i < METHODS; i++) {
+            sb.append("    public int m").append(i).append("(int a, String b) {\n")
+              .append("        if (a > ").append(i + bounds[i] * 1000).append(") {\n")
+              .append("            return b.length();\n")
+              .append("        }\n")
+              .append("        return a;\n")
+              .append("    }\n");
+        }
+        return sb.append("}\n").toString();
+    }
+
+    private static JiraTicket bug(String key) {
+        JiraTicket t = new JiraTicket();
+        t.setKey(key);
+        t.setIssueType("Bug");
+        t.setResolution("Fixed");
+        t.setStatus("Closed");
+        return t;
+    }
+}
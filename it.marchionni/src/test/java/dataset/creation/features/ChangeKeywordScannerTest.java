@@ -0,0 +1,151 @@
+package dataset.creation.features;
+
+import dataset.creation.Bench;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static dataset.creation.features.ChangeKeywordScanner.CASE;
+import static dataset.creation.features.ChangeKeywordScanner.CATCH;
+import static dataset.creation.features.ChangeKeywordScanner.DO;
+import static dataset.creation.features.ChangeKeywordScanner.ELSE;
+import static dataset.creation.features.ChangeKeywordScanner.FOR;
+import static dataset.creation.features.ChangeKeywordScanner.IF;
+import static dataset.creation.features.ChangeKeywordScanner.KEYWORDS;
+import static dataset.creation.features.ChangeKeywordScanner.RETURN;
+import static dataset.creation.features.ChangeKeywordScanner.SWITCH;
+import static dataset.creation.features.ChangeKeywordScanner.TRY;
+import static dataset.creation.features.ChangeKeywordScanner.WHILE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeKeywordScannerTest {
+
+    @Test
+    void countsWholeIdentifiersOnly() {
+        assertCounts("verify(notified); elseWhere = doIt(tryLock, caseOf, returned);\n");
+        assertCounts("if (ok) return x; else return y;\n", IF, ELSE, RETURN, RETURN);
+    }
+
+    @Test
+    void skipsComments() {
+        assertCounts("x = 1; // if we return early, else\n");
+        assertCounts("/* for (;;) { try { } catch } */ y = 2;\n");
+        assertCounts("/** while\n * switch (x) { case 1: }\n */\nreturn;\n", RETURN);
+    }
+
+    @Test
+    void skipsStringsAndCharacters() {
+        assertCounts("s = \"if (a) return b; else\";\n");
+        assertCounts("s = \"escaped \\\" if \\\" quote\"; return s;\n", RETURN);
+        assertCounts("c = '\"'; if (c == '\\'') return;\n", IF, RETURN);
+    }
+
+    @Test
+    void skipsTextBlocks() {
+        assertCounts("String sql = \"\"\"\n"
+                + "    select * from t\n"
+                + "    where x = 1 -- if, case, for\n"
+                + "    \"\"\";\n"
+                + "return sql;\n", RETURN);
+    }
+
+    @Test
+    void doWhileCountsAsOneLoop() {
+        assertCounts("do { x++; } while (x < 10);\n", DO);
+        assertCounts("do {\n  x++;\n} while (next(x) && (x & 1) == 0);\n", DO);
+    }
+
+    @Test
+    void whileLoopCounts() {
+        assertCounts("while (x) {\n  x = step();\n}\n", WHILE);
+        assertCounts("while (x) x = step();\n", WHILE);
+        // condizione o corpo fuori dall'hunk
+        assertCounts("while (x)\n", WHILE);
+        assertCounts("while (check(\n", WHILE);
+    }
+
+    @Test
+    void countsEveryKeyword() {
+        assertCounts("switch (k) { case 1: for (;;) { } }\n"
+                + "try { } catch (E e) { }\n", SWITCH, CASE, FOR, TRY, CATCH);
+    }
+
+    /** L'hunk parte a metà di un commento a blocco: la riga inizia con {@code *}. */
+    @Test
+    void hunkStartingInsideBlockComment() {
+        SourceLines lines = lines("/**\n"
+                + " * if this fails, return null\n"
+                + " * else retry\n"
+                + " */\n"
+                + "if (a) return b;\n");
+        int[] counts = ChangeKeywordScanner.newCounts();
+        ChangeKeywordScanner.scan(lines, 1, 5, counts);
+        assertArrayEquals(expected(IF, RETURN), counts);
+
+        // dalla chiusura del commento in poi non c'è niente da saltare
+        ChangeKeywordScanner.scan(lines, 3, 5, counts);
+        assertArrayEquals(expected(IF, RETURN), counts);
+    }
+
+    @Test
+    void scansOnlyTheRequestedLines() {
+        SourceLines lines = lines("if (a) {\n"
+                + "  for (;;) { }\n"
+                + "} else {\n"
+                + "  return;\n"
+                + "}\n");
+        int[] counts = ChangeKeywordScanner.newCounts();
+        ChangeKeywordScanner.scan(lines, 1, 3, counts);
+        assertArrayEquals(expected(FOR, ELSE), counts);
+
+        // intervallo oltre la fine del file e intervallo vuoto
+        ChangeKeywordScanner.scan(lines, 3, 100, counts);
+        assertArrayEquals(expected(RETURN), counts);
+        ChangeKeywordScanner.scan(lines, 2, 2, counts);
+        assertArrayEquals(expected(), counts);
+    }
+
+    /** Byte al secondo su un file Java realistico ripetuto fino a ~8 MiB. */
+    @Test
+    @EnabledIfSystemProperty(named = Bench.ENABLED, matches = "true")
+    void scanThroughput() {
+        String unit = MethodSignatureIndexTest.generatedClass(40, 0)
+                + "/* commento con if, else e return */\n"
+                + "String s = \"while (true) { }\"; char c = '\\'';\n"
+                + "do { x++; } while (x < 10);\n";
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 8 << 20) {
+            sb.append(unit);
+        }
+        SourceLines lines = lines(sb.toString());
+        int[] counts = ChangeKeywordScanner.newCounts();
+        long nanos = Bench.bestOf(10, () -> {
+            ChangeKeywordScanner.scan(lines, 0, lines.size(), counts);
+            return counts[IF];
+        });
+        double mbPerSecond = lines.getRawContent().length / (nanos / 1e9) / (1 << 20);
+        System.out.printf("ChangeKeywordScanner: %d MiB in %.2f ms, %.0f MiB/s%n",
+                lines.getRawContent().length >> 20, Bench.millis(nanos), mbPerSecond);
+        assertTrue(counts[IF] > 0);
+    }
+
+    private static void assertCounts(String source, int... keywords) {
+        SourceLines lines = lines(source);
+        int[] counts = ChangeKeywordScanner.newCounts();
+        ChangeKeywordScanner.scan(lines, 0, lines.size(), counts);
+        assertArrayEquals(expected(keywords), counts, source);
+    }
+
+    private static int[] expected(int... keywords) {
+        int[] counts = new int[KEYWORDS];
+        for (int k : keywords) {
+            counts[k]++;
+        }
+        return counts;
+    }
+
+    private static SourceLines lines(String source) {
+        return new SourceLines(source.getBytes(UTF_8));
+    }
+}
@@ -0,0 +1,49 @@
+package dataset.creation.features;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FeatureCacheTest {
+
+    private static final String BLOB = FeatureCache.blobId("class A { }".getBytes(UTF_8));
+
+    @Test
+    void survivesSaveAndLoad(@TempDir Path tmp) throws Exception {
+        Path file = tmp.resolve("cache.json");
+        FeatureCache cache = FeatureCache.load(file, 10);
+        cache.put(BLOB, Map.of("void f()", features(4)));
+        cache.save();
+
+        FeatureCache reloaded = FeatureCache.load(file, 10);
+        Map<String, MethodFeatures> methods = reloaded.get(BLOB);
+        assertNotNull(methods);
+        assertEquals(4, methods.get("void f()").getCognitiveComplexity());
+    }
+
+    /** Una cache salvata prima del versionamento ha metriche calcolate con il vecchio visitor. */
+    @Test
+    void previousFormatIsDiscarded(@TempDir Path tmp) throws Exception {
+        Path file = tmp.resolve("cache.json");
+        Files.writeString(file, "{\"entries\":[{\"blobId\":\"" + BLOB + "\","
+                + "\"methods\":{\"void f()\":{\"cognitiveComplexity\":1}}}]}", UTF_8);
+
+        FeatureCache cache = FeatureCache.load(file, 10);
+        assertEquals(0, cache.size());
+        assertNull(cache.get(BLOB));
+    }
+
+    private static MethodFeatures features(int cognitive) {
+        MethodFeatures f = new MethodFeatures();
+        f.setCognitiveComplexity(cognitive);
+        return f;
+    }
+}
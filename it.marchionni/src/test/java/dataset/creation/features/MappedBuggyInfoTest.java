@@ -0,0 +1,47 @@
+package dataset.creation.features;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Fingerprint dell'header letto senza mappare il file, che resta sostituibile. */
+class MappedBuggyInfoTest {
+
+    @Test
+    void fingerprintReadFromHeaderThenFileReplaced(@TempDir Path tmp) throws Exception {
+        Path file = tmp.resolve("buggy.bin");
+        byte[] old = fingerprint(1);
+        MappedBuggyInfo.write(file, BuggyInfo.of(Set.of("A.java#voida()"), Map.of()), old);
+        assertArrayEquals(old, MappedBuggyInfo.readFingerprint(file));
+
+        // storia cambiata: il file viene riscritto al suo posto
+        byte[] now = fingerprint(2);
+        MappedBuggyInfo.write(file, BuggyInfo.of(Set.of("B.java#voidb()"), Map.of()), now);
+        assertArrayEquals(now, MappedBuggyInfo.readFingerprint(file));
+        assertEquals(Set.of("B.java#voidb()"), MappedBuggyInfo.open(file).getBuggyMethods());
+    }
+
+    @Test
+    void rejectsShortOrForeignFiles(@TempDir Path tmp) throws Exception {
+        Path shortFile = Files.write(tmp.resolve("short.bin"), new byte[]{0x42, 0x47});
+        Path foreign = Files.write(tmp.resolve("foreign.bin"), new byte[64]);
+        assertThrows(IOException.class, () -> MappedBuggyInfo.readFingerprint(shortFile));
+        assertThrows(IOException.class, () -> MappedBuggyInfo.readFingerprint(foreign));
+    }
+
+    private static byte[] fingerprint(int seed) {
+        byte[] b = new byte[20];
+        Arrays.fill(b, (byte) seed);
+        return b;
+    }
+}
@@ -0,0 +1,202 @@
+package dataset.creation.features;
+
+import com.github.javaparser.ast.body.MethodDeclaration;
+import dataset.creation.Bench;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Complessità cognitiva sugli esempi del white paper di SonarSource
+ * ("Cognitive Complexity", G. Ann Campbell), con il valore indicato nel
+ * documento, più le altre metriche del visitor.
+ */
+class MethodMetricsVisitorTest {
+
+    @Test
+    void sumOfPrimes() {
+        MethodMetricsVisitor m = metrics(
+                "int sumOfPrimes(int max) {\n"
+                + "  int total = 0;\n"
+                + "  OUT: for (int i = 1; i <= max; ++i) {\n"      // +1
+                + "    for (int j = 2; j < i; ++j) {\n"            // +2
+                + "      if (i % j == 0) {\n"                      // +3
+                + "        continue OUT;\n"                        // +1
+                + "      }\n"
+                + "    }\n"
+                + "    total += i;\n"
+                + "  }\n"
+                + "  return total;\n"
+                + "}\n");
+        assertEquals(7, m.cognitiveComplexity());
+        assertEquals(3, m.nestingDepth());
+        assertEquals(3, m.decisionPoints());
+        assertEquals(4, m.cyclomaticComplexity());
+    }
+
+    @Test
+    void getWords() {
+        MethodMetricsVisitor m = metrics(
+                "String getWords(int number) {\n"
+                + "  switch (number) {\n"                          // +1
+                + "    case 1: return \"one\";\n"
+                + "    case 2: return \"a couple\";\n"
+                + "    case 3: return \"a few\";\n"
+                + "    default: return \"lots\";\n"
+                + "  }\n"
+                + "}\n");
+        assertEquals(1, m.cognitiveComplexity());
+        assertEquals(3, m.decisionPoints());
+        assertEquals(4, m.cyclomaticComplexity());
+    }
+
+    @Test
+    void overriddenSymbolFrom() {
+        MethodMetricsVisitor m = metrics(
+                "MethodJavaSymbol overriddenSymbolFrom(ClassJavaType classType) {\n"
+                + "  if (classType.isUnknown()) {\n"                               // +1
+                + "    return Symbols.unknownMethodSymbol;\n"
+                + "  }\n"
+                + "  boolean unknownFound = false;\n"
+                + "  List<JavaSymbol> symbols = classType.getSymbol().members().lookup(name);\n"
+                + "  for (JavaSymbol overrideSymbol : symbols) {\n"                // +1
+                + "    if (overrideSymbol.isKind(JavaSymbol.MTH)\n"                // +2
+                + "        && !overrideSymbol.isStatic()) {\n"                     // +1
+                + "      MethodJavaSymbol methodJavaSymbol = (MethodJavaSymbol) overrideSymbol;\n"
+                + "      if (canOverride(methodJavaSymbol)) {\n"                   // +3
+                + "        Boolean overriding = checkOverridingParameters(methodJavaSymbol, classType);\n"
+                + "        if (overriding == null) {\n"                            // +4
+                + "          if (!unknownFound) {\n"                               // +5
+                + "            unknownFound = true;\n"
+                + "          }\n"
+                + "        } else if (overriding) {\n"                             // +1
+                + "          return methodJavaSymbol;\n"
+                + "        }\n"
+                + "      }\n"
+                + "    }\n"
+                + "  }\n"
+                + "  if (unknownFound) {\n"                                        // +1
+                + "    return Symbols.unknownMethodSymbol;\n"
+                + "  }\n"
+                + "  return null;\n"
+                + "}\n");
+        assertEquals(19, m.cognitiveComplexity());
+        assertEquals(5, m.nestingDepth());
+    }
+
+    /** Sequenze di operatori logici uguali: +1 per sequenza, non per operatore. */
+    @Test
+    void logicalOperatorSequences() {
+        assertEquals(4, metrics("void f() { if (a && b && c || d || e && f) { } }").cognitiveComplexity());
+        assertEquals(3, metrics("void f() { if (a && !(b && c)) { } }").cognitiveComplexity());
+        // ciclomatica: if + 5 operatori + 1
+        assertEquals(7, metrics("void f() { if (a && b && c || d || e && f) { } }").cyclomaticComplexity());
+    }
+
+    /** try non annida, catch sì: l'esempio del paper vale 9. */
+    @Test
+    void tryCatchNesting() {
+        MethodMetricsVisitor m = metrics(
+                "void myMethod() {\n"
+                + "  try {\n"
+                + "    if (condition1) {\n"                          // +1
+                + "      for (int i = 0; i < 10; i++) {\n"          // +2
+                + "        while (condition2) { }\n"                // +3
+                + "      }\n"
+                + "    }\n"
+                + "  } catch (ExcepType1 | ExcepType2 e) {\n"       // +1
+                + "    if (condition2) { }\n"                       // +2
+                + "  }\n"
+                + "}\n");
+        assertEquals(9, m.cognitiveComplexity());
+    }
+
+    /** Lambda e classi anonime non incrementano ma alzano l'annidamento. */
+    @Test
+    void lambdaRaisesNesting() {
+        assertEquals(2, metrics(
+                "void myMethod2() {\n"
+                + "  Runnable r = () -> {\n"
+                + "    if (condition1) { }\n"                        // +2
+                + "  };\n"
+                + "}\n").cognitiveComplexity());
+        assertEquals(2, metrics(
+                "void f() {\n"
+                + "  Runnable r = new Runnable() {\n"
+                + "    public void run() { if (c) { } }\n"            // +2
+                + "  };\n"
+                + "}\n").cognitiveComplexity());
+    }
+
+    /**
+     * Il vecchio DepthVisitor rivisitava i figli a ogni livello (2^profondità
+     * visite): a 200 livelli non terminava. Qui ogni nodo è visitato una volta.
+     */
+    @Test
+    void deepNestingIsVisitedOnce() {
+        int depth = 200;
+        MethodMetricsVisitor m = MethodMetricsVisitor.of(nestedMethod(depth));
+        assertEquals(depth, m.nestingDepth());
+        assertEquals(depth, m.decisionPoints());
+        assertEquals(depth + 1, m.cyclomaticComplexity());
+        assertEquals(depth * (depth + 1) / 2, m.cognitiveComplexity());
+    }
+
+    /** Raddoppiando la profondità il tempo di visita raddoppia circa. */
+    @Test
+    @EnabledIfSystemProperty(named = Bench.ENABLED, matches = "true")
+    void visitScalesLinearlyWithNesting() {
+        int[] depths = {80, 160, 320};
+        long[] times = new long[depths.length];
+        for (int i = 0; i < depths.length; i++) {
+            MethodDeclaration md = nestedMethod(depths[i]);
+            times[i] = Bench.bestOf(20, () -> MethodMetricsVisitor.of(md).cognitiveComplexity());
+            System.out.printf("MethodMetricsVisitor: profondità %4d  %8.3f ms%n",
+                    depths[i], Bench.millis(times[i]));
+        }
+        // 4× la profondità: lineare ~4×; margine ampio per il rumore
+        double growth = (double) times[2] / times[0];
+        assertTrue(growth < 8, "crescita su 4x profondità: " + growth);
+    }
+
+    private static MethodMetricsVisitor metrics(String method) {
+        return MethodMetricsVisitor.of(declaration("class A {\n" + method + "}\n"));
+    }
+
+    private static MethodDeclaration declaration(String source) {
+        return ParserProvider.parse(source).findFirst(MethodDeclaration.class).orElseThrow();
+    }
+
+    /**
+     * Metodo con {@code depth} strutture annidate una nell'altra, a rotazione
+     * if, for, while e catch: ciascuna vale 1 + annidamento.
+     */
+    static MethodDeclaration nestedMethod(int depth) {
+        StringBuilder open = new StringBuilder();
+        StringBuilder close = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            switch (i % 4) {
+                case 0:
+                    open.append("if (x > ").append(i).append(") {\n");
+                    close.insert(0, "}\n");
+                    break;
+                case 1:
+                    open.append("for (int i").append(i).append(" = 0; i").append(i)
+                        .append(" < x; i").append(i).append("++) {\n");
+                    close.insert(0, "}\n");
+                    break;
+                case 2:
+                    open.append("while (x > ").append(i).append(") {\n");
+                    close.insert(0, "}\n");
+                    break;
+                default:
+                    open.append("try { x--; } catch (RuntimeException e").append(i).append(") {\n");
+                    close.insert(0, "}\n");
+                    break;
+            }
+        }
+        return declaration("class Deep {\nvoid f(int x) {\n" + open + "x++;\n" + close + "}\n}\n");
+    }
+}
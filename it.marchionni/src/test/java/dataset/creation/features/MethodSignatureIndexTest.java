@@ -0,0 +1,114 @@
+package dataset.creation.features;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import dataset.creation.Bench;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MethodSignatureIndexTest {
+
+    @Test
+    void findsTheSameDeclarationAsTheLinearSearch() {
+        CompilationUnit oldCu = ParserProvider.parse(generatedClass(200, 0));
+        CompilationUnit newCu = ParserProvider.parse(generatedClass(220, 1));
+        MethodSignatureIndex oldIndex = MethodSignatureIndex.of(oldCu);
+
+        for (MethodSignatureIndex.Entry e : MethodSignatureIndex.of(newCu).entries()) {
+            MethodDeclaration linear = linearFind(oldCu, e.signature);
+            MethodSignatureIndex.Entry indexed = oldIndex.find(e.signature);
+            if (linear == null) {
+                assertNull(indexed, e.signature);
+            } else {
+                assertSame(linear, indexed.declaration, e.signature);
+            }
+        }
+    }
+
+    @Test
+    void firstOccurrenceWinsOnDuplicateSignatures() {
+        CompilationUnit cu = ParserProvider.parse(
+                "class A {\n"
+                + "  void f(int x) { }\n"
+                + "  class B { void f(int x) { return; } }\n"
+                + "}\n");
+        MethodSignatureIndex index = MethodSignatureIndex.of(cu);
+        assertEquals(2, index.entries().size());
+        assertSame(index.entries().get(0), index.find("void f(int)"));
+        assertEquals(2, index.find("void f(int)").range.begin.line);
+    }
+
+    /**
+     * Abbinamento di tutti i metodi di una classe generata con la vecchia
+     * ricerca lineare (O(n²) chiamate a getDeclarationAsString) e con
+     * l'indice (O(n)). Quadruplicando i metodi il tempo dell'indice cresce
+     * circa di 4 volte, quello lineare circa di 16.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = Bench.ENABLED, matches = "true")
+    void matchingScalesLinearly() {
+        int[] sizes = {500, 1000, 2000};
+        long[] indexed = new long[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            CompilationUnit oldCu = ParserProvider.parse(generatedClass(sizes[i], 0));
+            CompilationUnit newCu = ParserProvider.parse(generatedClass(sizes[i], 1));
+            List<MethodDeclaration> newMethods = newCu.findAll(MethodDeclaration.class);
+
+            long linear = Bench.bestOf(3, () -> {
+                long found = 0;
+                for (MethodDeclaration md : newMethods) {
+                    if (linearFind(oldCu, md.getDeclarationAsString(false, false, false)) != null) found++;
+                }
+                return found;
+            });
+            indexed[i] = Bench.bestOf(5, () -> {
+                MethodSignatureIndex oldIndex = MethodSignatureIndex.of(oldCu);
+                long found = 0;
+                for (MethodSignatureIndex.Entry e : MethodSignatureIndex.of(newCu).entries()) {
+                    if (oldIndex.find(e.signature) != null) found++;
+                }
+                return found;
+            });
+            System.out.printf("MethodSignatureIndex: %5d metodi  lineare %9.2f ms  indice %7.2f ms%n",
+                    sizes[i], Bench.millis(linear), Bench.millis(indexed[i]));
+        }
+        // 4× i metodi: lineare ~4×, quadratico ~16×; margine ampio per il rumore
+        double growth = (double) indexed[2] / indexed[0];
+        assertTrue(growth < 8, "crescita dell'indice su 4x metodi: " + growth);
+    }
+
+    /** La ricerca per firma usata prima dell'indice. */
+    private static MethodDeclaration linearFind(CompilationUnit cu, String signature) {
+        for (MethodDeclaration md : cu.findAll(MethodDeclaration.class)) {
+            if (md.getDeclarationAsString(false, false, false).equals(signature)) {
+                return md;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Classe con {@code methods} metodi; {@code variant} 1 ne cambia i corpi
+     * e rinomina un metodo ogni dieci, come una versione successiva del file.
+     */
+    static String generatedClass(int methods, int variant) {
+        StringBuilder sb = new StringBuilder("package gen;\npublic class Big {\n");
+        for (int i = 0; i < methods; i++) {
+            String name = variant == 1 && i % 10 == 0 ? "renamed" + i : "m" + i;
+            sb.append("    public int ").append(name).append("(int a, String b) {\n")
+              .append("        if (a > ").append(i + variant).append(") {\n")
+              .append("            return b.length();\n")
+              .append("        }\n")
+              .append("        return a;\n")
+              .append("    }\n");
+        }
+        return sb.append("}\n").toString();
+    }
+}
@@ -0,0 +1,90 @@
+package dataset.creation.features;
+
+import dataset.creation.TestRepo;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TicketLinkIndexTest {
+
+    @Test
+    void countsEveryMentionOnce(@TempDir Path tmp) throws Exception {
+        try (TestRepo repo = TestRepo.init(tmp.resolve("repo"))) {
+            RevCommit c1 = repo.write("A.java", "class A { }").commit("PROJ-1 fix, see also proj-1 and PROJ-2");
+            RevCommit c2 = repo.write("A.java", "class A { int x; }").commit("PROJ-2 follow-up");
+            repo.write("A.java", "class A { int y; }").commit("unrelated");
+
+            TicketLinkIndex index = TicketLinkIndex.load(tmp.resolve("links.json"), "PROJ");
+            assertEquals(3, index.update(repo.git().getRepository(), List.of(head(repo))));
+
+            assertEquals(Map.of(c1.getId(), 2), index.bugFixMentions(Set.of("PROJ-1")));
+            assertEquals(Map.of(c1.getId(), 3, c2.getId(), 1),
+                    index.bugFixMentions(Set.of("PROJ-1", "PROJ-2")));
+        }
+    }
+
+    /** Una testa salvata che non esiste più fa rileggere la storia, senza raddoppiare i conteggi. */
+    @Test
+    void rescanAfterLostHeadDoesNotDoubleCount(@TempDir Path tmp) throws Exception {
+        Path file = tmp.resolve("links.json");
+        try (TestRepo repo = TestRepo.init(tmp.resolve("repo"))) {
+            RevCommit fix = repo.write("A.java", "class A { }").commit("PROJ-7 fix PROJ-7");
+
+            TicketLinkIndex index = TicketLinkIndex.load(file, "PROJ");
+            index.update(repo.git().getRepository(), List.of(head(repo)));
+            index.save();
+
+            // testa sparita (force-push): il watermark salvato non si risolve più
+            String saved = Files.readString(file, UTF_8);
+            String lost = "\"heads\":[\"" + "0123456789".repeat(4) + "\"]";
+            Files.writeString(file, saved.replace("\"heads\":[\"" + fix.name() + "\"]", lost), UTF_8);
+
+            TicketLinkIndex reloaded = TicketLinkIndex.load(file, "PROJ");
+            assertEquals(1, reloaded.update(repo.git().getRepository(), List.of(head(repo))));
+            assertEquals(Map.of(fix.getId(), 2), reloaded.bugFixMentions(Set.of("PROJ-7")));
+        }
+    }
+
+    @Test
+    void survivesSaveAndLoad(@TempDir Path tmp) throws Exception {
+        Path file = tmp.resolve("links.json");
+        try (TestRepo repo = TestRepo.init(tmp.resolve("repo"))) {
+            RevCommit fix = repo.write("A.java", "class A { }").commit("PROJ-3: PROJ-3 again");
+
+            TicketLinkIndex index = TicketLinkIndex.load(file, "PROJ");
+            index.update(repo.git().getRepository(), List.of(head(repo)));
+            index.save();
+
+            TicketLinkIndex reloaded = TicketLinkIndex.load(file, "PROJ");
+            assertEquals(0, reloaded.update(repo.git().getRepository(), List.of(head(repo))));
+            assertEquals(Map.of(fix.getId(), 2), reloaded.bugFixMentions(Set.of("PROJ-3")));
+        }
+    }
+
+    @Test
+    void previousFormatIsRebuilt(@TempDir Path tmp) throws Exception {
+        Path file = tmp.resolve("links.json");
+        Files.writeString(file, "{\"heads\":[],\"links\":{\"PROJ-1\":[\"a\",\"a\"]}}", UTF_8);
+        try (TestRepo repo = TestRepo.init(tmp.resolve("repo"))) {
+            RevCommit fix = repo.write("A.java", "class A { }").commit("PROJ-1");
+
+            TicketLinkIndex index = TicketLinkIndex.load(file, "PROJ");
+            assertEquals(1, index.update(repo.git().getRepository(), List.of(head(repo))));
+            assertEquals(Map.of(fix.getId(), 1), index.bugFixMentions(Set.of("PROJ-1")));
+        }
+    }
+
+    private static ObjectId head(TestRepo repo) throws Exception {
+        return repo.git().getRepository().resolve("HEAD");
+    }
+}
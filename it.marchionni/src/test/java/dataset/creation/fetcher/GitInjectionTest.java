@@ -0,0 +1,119 @@
+package dataset.creation.fetcher;
+
+import dataset.creation.Bench;
+import dataset.creation.HistoryGenerator;
+import dataset.creation.exceptions.GitInjectionException;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ListBranchCommand;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link GitInjection#forEachCommit} su storie generate con
+ * {@link HistoryGenerator} e clonate da file locale come farebbe la pipeline.
+ */
+class GitInjectionTest {
+
+    @Test
+    void visitsEveryCommitOfEveryBranchOnce(@TempDir Path tmp) throws Exception {
+        int total = HistoryGenerator.generate(tmp.resolve("origin.git"), 3000);
+        File work = tmp.resolve("work").toFile();
+
+        try (GitInjection gi = new GitInjection(tmp.resolve("origin.git").toUri().toString(),
+                work, new ArrayList<>())) {
+            List<ObjectId> visited = new ArrayList<>();
+            gi.forEachCommit(visited::add);
+
+            assertEquals(total, visited.size());
+            assertEquals(total, new HashSet<>(visited).size());
+            assertEquals(logPerBranch(work), new HashSet<>(visited));
+        }
+    }
+
+    /**
+     * Visita di una storia da {@code dataset.bench.commits} commit sul master
+     * (default 100 000), più la vecchia raccolta con git log per branch su
+     * una storia di 10 000 commit per confronto.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = Bench.ENABLED, matches = "true")
+    void forEachCommitOnLongHistory(@TempDir Path tmp) throws Exception {
+        int mainLine = Integer.getInteger("dataset.bench.commits", 100_000);
+        long t0 = System.nanoTime();
+        int total = HistoryGenerator.generate(tmp.resolve("big.git"), mainLine);
+        System.out.printf("HistoryGenerator: %d commit in %.0f ms%n", total, Bench.millis(System.nanoTime() - t0));
+
+        try (GitInjection gi = new GitInjection(tmp.resolve("big.git").toUri().toString(),
+                tmp.resolve("big").toFile(), new ArrayList<>())) {
+            long nanos = Bench.bestOf(3, () -> count(gi));
+            System.out.printf("forEachCommit: %d commit in %.0f ms%n", count(gi), Bench.millis(nanos));
+            assertEquals(total, count(gi));
+        }
+
+        int small = HistoryGenerator.generate(tmp.resolve("small.git"), 10_000);
+        File work = tmp.resolve("small").toFile();
+        try (GitInjection gi = new GitInjection(tmp.resolve("small.git").toUri().toString(),
+                work, new ArrayList<>())) {
+            long walk = Bench.bestOf(3, () -> count(gi));
+            t0 = System.nanoTime();
+            List<RevCommit> old = oldCollect(work);
+            long oldNanos = System.nanoTime() - t0;
+            System.out.printf("%d commit: forEachCommit %.0f ms, git log per branch + List.contains %.0f ms%n",
+                    small, Bench.millis(walk), Bench.millis(oldNanos));
+            assertEquals(small, old.size());
+            assertTrue(walk < oldNanos);
+        }
+    }
+
+    private static long count(GitInjection gi) {
+        long[] n = {0};
+        try {
+            gi.forEachCommit(c -> n[0]++);
+        } catch (GitInjectionException e) {
+            throw new IllegalStateException(e);
+        }
+        return n[0];
+    }
+
+    /** Commit raggiungibili da ogni branch, con un git log per branch. */
+    private static Set<ObjectId> logPerBranch(File work) throws Exception {
+        Set<ObjectId> all = new HashSet<>();
+        try (Git git = Git.open(work)) {
+            for (Ref br : git.branchList().setListMode(ListBranchCommand.ListMode.ALL).call()) {
+                for (RevCommit rc : git.log().add(br.getObjectId()).call()) {
+                    all.add(rc.getId());
+                }
+            }
+        }
+        return all;
+    }
+
+    /** La raccolta usata prima della RevWalk unica: quadratica per List.contains. */
+    private static List<RevCommit> oldCollect(File work) throws Exception {
+        List<RevCommit> result = new ArrayList<>();
+        try (Git git = Git.open(work)) {
+            for (Ref br : git.branchList().setListMode(ListBranchCommand.ListMode.ALL).call()) {
+                for (RevCommit rc : git.log().add(br.getObjectId()).call()) {
+                    if (!result.contains(rc)) {
+                        result.add(rc);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
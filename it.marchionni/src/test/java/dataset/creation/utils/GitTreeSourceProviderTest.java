@@ -0,0 +1,118 @@
+package dataset.creation.utils;
+
+import dataset.creation.TestRepo;
+import dataset.creation.features.FeatureCache;
+import dataset.creation.features.FeatureExtractor;
+import dataset.creation.features.MethodFeatures;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Le feature lette dagli alberi dei tag coincidono con quelle estratte dal
+ * checkout degli stessi tag. Tutto offline, su un repository locale.
+ */
+class GitTreeSourceProviderTest {
+
+    static final String SHAPES_V1 =
+            "package p;\n"
+            + "public class Shapes {\n"
+            + "    public int area(int w, int h) {\n"
+            + "        if (w < 0 || h < 0) {\n"
+            + "            return 0;\n"
+            + "        }\n"
+            + "        return w * h;\n"
+            + "    }\n"
+            + "}\n";
+
+    static final String SHAPES_V2 =
+            "package p;\n"
+            + "public class Shapes {\n"
+            + "    public int area(int w, int h) {\n"
+            + "        if (w < 0 || h < 0) {\n"
+            + "            throw new IllegalArgumentException();\n"
+            + "        }\n"
+            + "        return w * h;\n"
+            + "    }\n"
+            + "    public int perimeter(int w, int h) {\n"
+            + "        int p = 0;\n"
+            + "        for (int i = 0; i < 2; i++) {\n"
+            + "            p += w + h;\n"
+            + "        }\n"
+            + "        return p;\n"
+            + "    }\n"
+            + "}\n";
+
+    static final String UTIL =
+            "package p;\n"
+            + "public class Util {\n"
+            + "    static String name(Object o) {\n"
+            + "        switch (o.hashCode() % 3) {\n"
+            + "            case 0: return \"a\";\n"
+            + "            case 1: return \"b\";\n"
+            + "            default: return o == null ? \"?\" : \"c\";\n"
+            + "        }\n"
+            + "    }\n"
+            + "}\n";
+
+    static final String A_TEST =
+            "package p;\n"
+            + "public class ShapesTest {\n"
+            + "    void testArea() { }\n"
+            + "}\n";
+
+    @Test
+    void treeExtractionMatchesCheckoutOfEachTag(@TempDir Path tmp) throws Exception {
+        try (TestRepo repo = TestRepo.init(tmp.resolve("repo"))) {
+            repo.write("src/main/java/p/Shapes.java", SHAPES_V1)
+                .write("src/test/java/p/ShapesTest.java", A_TEST)
+                .write("README.md", "shapes\n");
+            repo.commit("v1");
+            repo.tag("release-1");
+
+            repo.write("src/main/java/p/Shapes.java", SHAPES_V2)
+                .write("src/main/java/p/Util.java", UTIL);
+            repo.commit("v2");
+            repo.tag("release-2");
+
+            FeatureExtractor fx = new FeatureExtractor();
+            try (RepositoryService service = RepositoryService.open(repo.workTree())) {
+                GitTreeSourceProvider sources = new GitTreeSourceProvider(service);
+                assertFalse(sources.hasRevision("release-3"));
+                for (String tag : new String[]{"release-1", "release-2"}) {
+                    assertTrue(sources.hasRevision(tag));
+                    repo.checkout(tag);
+
+                    Map<File, Map<String, MethodFeatures>> fromTree = PipelineUtils.extractFromGitTree(
+                            sources, tag, fx, 1,
+                            FeatureCache.load(tmp.resolve(tag + "_cache.json"), 100));
+                    Map<File, Map<String, MethodFeatures>> fromCheckout =
+                            PipelineUtils.walkAndExtract(repo.workTree(), fx);
+
+                    assertFalse(fromCheckout.isEmpty(), tag);
+                    assertEquals(describe(fromCheckout), describe(fromTree), tag);
+                }
+            }
+        }
+    }
+
+    /** Confronto per valore: MethodFeatures non ridefinisce equals. */
+    static Map<String, String> describe(Map<File, Map<String, MethodFeatures>> feats) {
+        Map<String, String> out = new TreeMap<>();
+        feats.forEach((file, methods) -> methods.forEach((sig, m) ->
+                out.put(file.getAbsolutePath() + "#" + sig, String.format(
+                        "len=%d params=%d nest=%d dp=%d cc=%d cog=%d smells=%d",
+                        m.getMethodLength(), m.getParameterCount(), m.getNestingDepth(),
+                        m.getDecisionPoints(), m.getCyclomaticComplexity(),
+                        m.getCognitiveComplexity(), m.getCodeSmells()))));
+        return out;
+    }
+}
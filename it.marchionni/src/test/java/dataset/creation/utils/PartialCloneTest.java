@@ -0,0 +1,235 @@
+package dataset.creation.utils;
+
+import dataset.creation.TestRepo;
+import dataset.creation.features.BuggyInfo;
+import dataset.creation.features.BuggyMethodExtractor;
+import dataset.creation.features.FeatureCache;
+import dataset.creation.features.FeatureExtractor;
+import dataset.creation.features.MethodFeatures;
+import dataset.creation.fetcher.GitInjection;
+import dataset.creation.fetcher.jira.JiraTicket;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectDatabase;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Clone parziale {@code blob:none} via {@code file://} da un repository bare
+ * che accetta filtri e richieste per id: i blob che non sono .java non
+ * arrivano mai, mentre estrazione dei metodi buggy e lettura delle release
+ * scaricano i .java che servono e producono lo stesso risultato di una
+ * clone completa.
+ */
+class PartialCloneTest {
+
+    private static final String CALC_V1 = "package p;\n"
+            + "public class Calc {\n"
+            + "    public int add(int a, int b) {\n"
+            + "        return a + b;\n"
+            + "    }\n"
+            + "    public int div(int a, int b) {\n"
+            + "        return a / b;\n"
+            + "    }\n"
+            + "}\n";
+    private static final String CALC_V2 = "package p;\n"
+            + "public class Calc {\n"
+            + "    public int add(int a, int b) {\n"
+            + "        if (a > 0 && b > Integer.MAX_VALUE - a) {\n"
+            + "            throw new ArithmeticException(\"overflow\");\n"
+            + "        }\n"
+            + "        return a + b;\n"
+            + "    }\n"
+            + "    public int div(int a, int b) {\n"
+            + "        return a / b;\n"
+            + "    }\n"
+            + "}\n";
+    private static final String CALC_V3 = "package p;\n"
+            + "public class Calc {\n"
+            + "    public int add(int a, int b) {\n"
+            + "        if (a > 0 && b > Integer.MAX_VALUE - a) {\n"
+            + "            throw new ArithmeticException(\"overflow\");\n"
+            + "        }\n"
+            + "        return a + b;\n"
+            + "    }\n"
+            + "    public int div(int a, int b) {\n"
+            + "        if (b == 0) {\n"
+            + "            return 0;\n"
+            + "        } else {\n"
+            + "            return a / b;\n"
+            + "        }\n"
+            + "    }\n"
+            + "}\n";
+    private static final String UTIL = "package p;\n"
+            + "public class Util {\n"
+            + "    static String name(Object o) {\n"
+            + "        return o == null ? \"null\" : o.getClass().getSimpleName();\n"
+            + "    }\n"
+            + "}\n";
+
+    @Test
+    void partialCloneFetchesOnlyTheJavaBlobsItReads(@TempDir Path tmp) throws Exception {
+        Path origin = tmp.resolve("origin.git");
+        try (TestRepo repo = TestRepo.init(tmp.resolve("src"))) {
+            repo.write("src/main/java/p/Calc.java", CALC_V1)
+                .write("README.md", "calc\n")
+                .write("docs/logo.bin", binary(1, 64 << 10));
+            repo.commit("initial import");
+            repo.tag("release-1");
+
+            repo.write("src/main/java/p/Calc.java", CALC_V2)
+                .write("docs/logo.bin", binary(2, 64 << 10));
+            repo.commit("PROJ-1 check overflow in add", "alice");
+            repo.write("src/main/java/p/Util.java", UTIL)
+                .write("src/main/resources/app.properties", "debug=false\n");
+            repo.commit("add Util", "bob");
+            repo.write("src/main/java/p/Calc.java", CALC_V3)
+                .write("README.md", "calc, now with div\n");
+            repo.commit("PROJ-2 division by zero", "bob");
+            repo.tag("release-2");
+
+            Git.cloneRepository().setBare(true)
+                    .setURI(repo.dir().toUri().toString())
+                    .setDirectory(origin.toFile())
+                    .call().close();
+        }
+
+        Set<ObjectId> otherBlobs;
+        Set<ObjectId> javaBlobs;
+        try (Repository server = new FileRepositoryBuilder().setGitDir(origin.toFile()).build()) {
+            StoredConfig cfg = server.getConfig();
+            cfg.setBoolean("uploadpack", null, "allowFilter", true);
+            cfg.setBoolean("uploadpack", null, "allowAnySHA1InWant", true);
+            cfg.save();
+            otherBlobs = blobs(server, false);
+            javaBlobs  = blobs(server, true);
+        }
+
+        String url = origin.toUri().toString();
+        File full = tmp.resolve("full").toFile();
+        File part = tmp.resolve("part").toFile();
+        new GitInjection(url, full, new ArrayList<>(), -1).close();
+        new GitInjection(url, part, new ArrayList<>(), 0).close();
+
+        try (RepositoryService fullRepo = RepositoryService.open(full);
+             RepositoryService partRepo = RepositoryService.open(part)) {
+            ObjectDatabase partDb = partRepo.repository().getObjectDatabase();
+            assertTrue(PartialClone.isPartial(partRepo.repository()));
+            assertFalse(PartialClone.isPartial(fullRepo.repository()));
+
+            // dopo la clone: solo i .java della HEAD, anche nel working tree
+            assertEquals(Set.of(), present(partDb, otherBlobs));
+            assertTrue(present(partDb, javaBlobs).size() < javaBlobs.size());
+            assertTrue(new File(part, "src/main/java/p/Util.java").isFile());
+            assertFalse(new File(part, "README.md").exists());
+
+            // metodi buggy: un worker sulla clone completa, due (reader per task) sulla parziale
+            List<JiraTicket> tickets = List.of(bug("PROJ-1"), bug("PROJ-2"));
+            BuggyInfo fromFull = BuggyMethodExtractor.computeOrLoad(fullRepo, tickets, "proj",
+                    Files.createDirectories(tmp.resolve("cache-full")), 1);
+            BuggyInfo fromPart = BuggyMethodExtractor.computeOrLoad(partRepo, tickets, "proj",
+                    Files.createDirectories(tmp.resolve("cache-part")), 2);
+            assertFalse(fromFull.getBuggyMethods().isEmpty());
+            assertEquals(fromFull.getBuggyMethods(), fromPart.getBuggyMethods());
+            assertEquals(json(fromFull), json(fromPart));
+
+            // sorgenti delle release lette dagli alberi
+            FeatureExtractor fx = new FeatureExtractor();
+            GitTreeSourceProvider fullSources = new GitTreeSourceProvider(fullRepo);
+            GitTreeSourceProvider partSources = new GitTreeSourceProvider(partRepo);
+            for (String tag : new String[]{"release-1", "release-2"}) {
+                Map<String, String> expected = relative(full, PipelineUtils.extractFromGitTree(fullSources,
+                        tag, fx, 1, FeatureCache.load(tmp.resolve(tag + "_full.json"), 100)));
+                Map<String, String> actual = relative(part, PipelineUtils.extractFromGitTree(partSources,
+                        tag, fx, 1, FeatureCache.load(tmp.resolve(tag + "_part.json"), 100)));
+                assertFalse(expected.isEmpty(), tag);
+                assertEquals(expected, actual, tag);
+            }
+
+            // i .java letti sono arrivati, gli altri blob no
+            assertEquals(javaBlobs, present(partDb, javaBlobs));
+            assertEquals(Set.of(), present(partDb, otherBlobs));
+        }
+    }
+
+    /** Blob di tutta la storia del server: i .java o tutti gli altri. */
+    private static Set<ObjectId> blobs(Repository repo, boolean java) throws Exception {
+        Set<ObjectId> out = new HashSet<>();
+        try (RevWalk rw = new RevWalk(repo);
+             TreeWalk tw = new TreeWalk(repo)) {
+            rw.markStart(rw.parseCommit(repo.resolve(Constants.HEAD)));
+            tw.setRecursive(true);
+            for (RevCommit c : rw) {
+                tw.reset(c.getTree());
+                while (tw.next()) {
+                    if (tw.getPathString().endsWith(".java") == java) {
+                        out.add(tw.getObjectId(0));
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    private static Set<ObjectId> present(ObjectDatabase db, Set<ObjectId> ids) throws Exception {
+        Set<ObjectId> out = new HashSet<>();
+        for (ObjectId id : ids) {
+            if (db.has(id)) out.add(id);
+        }
+        return out;
+    }
+
+    private static JiraTicket bug(String key) {
+        JiraTicket t = new JiraTicket();
+        t.setKey(key);
+        t.setIssueType("Bug");
+        t.setResolution("Fixed");
+        t.setStatus("Closed");
+        return t;
+    }
+
+    private static String json(BuggyInfo info) throws Exception {
+        try (Jsonb jsonb = JsonbBuilder.create()) {
+            return jsonb.toJson(new TreeMap<>(info.getMetricsByMethod()));
+        }
+    }
+
+    /** Feature con i path relativi alla clone, per confrontare due clone diverse. */
+    private static Map<String, String> relative(File root, Map<File, Map<String, MethodFeatures>> feats) {
+        String prefix = root.getAbsolutePath();
+        Map<String, String> out = new TreeMap<>();
+        GitTreeSourceProviderTest.describe(feats).forEach((k, v) ->
+                out.put(k.startsWith(prefix) ? k.substring(prefix.length()) : k, v));
+        return out;
+    }
+
+    private static byte[] binary(long seed, int size) {
+        byte[] b = new byte[size];
+        new Random(seed).nextBytes(b);
+        return b;
+    }
+}
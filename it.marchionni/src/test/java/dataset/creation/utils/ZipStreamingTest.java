@@ -0,0 +1,134 @@
+package dataset.creation.utils;
+
+import com.sun.net.httpserver.HttpServer;
+import dataset.creation.features.FeatureCache;
+import dataset.creation.features.FeatureExtractor;
+import dataset.creation.features.JavaSource;
+import okhttp3.HttpUrl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * {@link PipelineUtils#streamJavaSources} contro un server HTTP locale che
+ * serve uno zipball in stile GitHub (tutto sotto una directory radice).
+ */
+class ZipStreamingTest {
+
+    private static final String ROOT = "owner-proj-1a2b3c/";
+    private static final String MAIN = "package p;\npublic class Main {\n    void run() { }\n}\n";
+    private static final String UTIL = "package p.util;\npublic class Strings {\n    static int n() { return 1; }\n}\n";
+
+    private HttpServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/zipball/release-1", exchange -> {
+            byte[] zip = zipball();
+            exchange.getResponseHeaders().set("Content-Type", "application/zip");
+            exchange.sendResponseHeaders(200, zip.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(zip);
+            }
+        });
+        server.createContext("/zipball/missing", exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    void keepsOnlyAnalyzableJavaSourcesInMemory() throws IOException {
+        List<JavaSource> sources = PipelineUtils.streamJavaSources(url("release-1"));
+
+        Map<String, JavaSource> byPath = new TreeMap<>();
+        for (JavaSource s : sources) {
+            byPath.put(s.getFile().getPath().replace('\\', '/'), s);
+        }
+        assertEquals(List.of(
+                ROOT + "src/main/java/p/Main.java",
+                ROOT + "src/main/java/p/util/Strings.java"),
+                List.copyOf(byPath.keySet()));
+
+        JavaSource main = byPath.get(ROOT + "src/main/java/p/Main.java");
+        assertEquals(MAIN, main.getContent());
+        assertEquals(FeatureCache.blobId(MAIN.getBytes(UTF_8)), main.getBlobId());
+        // nessun file scritto: i path sono solo identità dentro lo zip
+        assertFalse(main.getFile().exists());
+    }
+
+    @Test
+    void failedDownloadIsReported() {
+        assertThrows(IOException.class, () -> PipelineUtils.streamJavaSources(url("missing")));
+    }
+
+    @Test
+    void streamedSourcesFeedTheExtractor(@TempDir Path tmp) throws IOException {
+        List<JavaSource> sources = PipelineUtils.streamJavaSources(url("release-1"));
+        Map<String, Integer> methods = PipelineUtils.extractSources(sources,
+                        new FeatureExtractor(), 1, FeatureCache.load(tmp.resolve("cache.json"), 10))
+                .entrySet().stream()
+                .collect(Collectors.toMap(e -> e.getKey().getName(), e -> e.getValue().size(),
+                        (a, b) -> a, TreeMap::new));
+        assertEquals(Map.of("Main.java", 1, "Strings.java", 1), methods);
+    }
+
+    private HttpUrl url(String tag) {
+        return HttpUrl.parse("http://127.0.0.1:" + server.getAddress().getPort() + "/zipball/" + tag);
+    }
+
+    /** Zip con sorgenti, test, demo, risorse e binari: restano solo i primi. */
+    private static byte[] zipball() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            dir(zip, ROOT);
+            dir(zip, ROOT + "src/main/java/p/");
+            file(zip, ROOT + "src/main/java/p/Main.java", MAIN);
+            file(zip, ROOT + "src/main/java/p/util/Strings.java", UTIL);
+            file(zip, ROOT + "src/test/java/p/MainTest.java", "class MainTest { }");
+            file(zip, ROOT + "src/main/java/p/MainMock.java", "class MainMock { }");
+            file(zip, ROOT + "examples/example/Hello.java", "class Hello { }");
+            file(zip, ROOT + "target/generated-sources/Gen.java", "class Gen { }");
+            file(zip, ROOT + "README.md", "# proj\n");
+            file(zip, ROOT + "lib/dep.jar", "PK\u0003\u0004 not really a jar");
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void dir(ZipOutputStream zip, String name) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.closeEntry();
+    }
+
+    private static void file(ZipOutputStream zip, String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(UTF_8));
+        zip.closeEntry();
+    }
+}